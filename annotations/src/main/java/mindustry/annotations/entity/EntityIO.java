@@ -133,8 +133,8 @@ public class EntityIO{
         }else{
             Revision rev = revisions.peek();
 
-            //base read code
-            st("if(lastUpdated != 0) updateSpacing = $T.timeSinceMillis(lastUpdated)", Time.class);
+            //base read code; unchanged entities are not sent, so the time since the last update is capped to the snapshot interval
+            st("if(lastUpdated != 0) updateSpacing = Math.min($T.timeSinceMillis(lastUpdated), mindustry.core.NetClient.maxUpdateSpacing())", Time.class);
             st("lastUpdated = $T.millis()", Time.class);
             st("boolean islocal = isLocal()");
 
@@ -182,7 +182,7 @@ public class EntityIO{
             }
         }else{
             //base read code
-            st("if(lastUpdated != 0) updateSpacing = $T.timeSinceMillis(lastUpdated)", Time.class);
+            st("if(lastUpdated != 0) updateSpacing = Math.min($T.timeSinceMillis(lastUpdated), mindustry.core.NetClient.maxUpdateSpacing())", Time.class);
             st("lastUpdated = $T.millis()", Time.class);
 
             //just read the field
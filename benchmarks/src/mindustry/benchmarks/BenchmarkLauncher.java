@@ -0,0 +1,118 @@
+package mindustry.benchmarks;
+
+import arc.*;
+import arc.backend.headless.*;
+import arc.files.*;
+import arc.util.*;
+import arc.util.Log.*;
+import mindustry.*;
+import mindustry.core.*;
+import mindustry.core.GameState.*;
+import mindustry.maps.*;
+import mindustry.mod.*;
+import mindustry.net.*;
+import mindustry.net.Net.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Starts a headless game instance for benchmarks, in the same way as the tests do.
+ * Benchmarks must be run with core/assets as the working directory.
+ */
+public class BenchmarkLauncher{
+    //core/assets
+    static final Fi dataFolder = new Fi("../../benchmarks/build/data");
+    static boolean initialized;
+
+    /** Launches the application and waits for it to load. Only the first call has any effect. */
+    public static synchronized void launch(){
+        if(initialized) return;
+        initialized = true;
+
+        boolean[] begins = {false};
+        Throwable[] exceptionThrown = {null};
+
+        ApplicationCore core = create(null, true, () -> {
+            begins[0] = true;
+            //stop the application loop; benchmarks update everything themselves
+            Thread.currentThread().interrupt();
+        });
+
+        new HeadlessApplication(core, throwable -> exceptionThrown[0] = throwable);
+
+        try{
+            while(!begins[0]){
+                if(exceptionThrown[0] != null){
+                    throw new RuntimeException(exceptionThrown[0]);
+                }
+                Thread.sleep(10);
+            }
+        }catch(InterruptedException e){
+            throw new RuntimeException(e);
+        }
+
+        Time.setDeltaProvider(() -> 1f);
+    }
+
+    /** Loads an internal map and starts playing it. */
+    public static void play(String mapName){
+        launch();
+
+        logic.reset();
+        state.set(State.menu);
+
+        Map map = maps.loadInternalMap(mapName);
+        world.loadMap(map);
+        state.set(State.playing);
+    }
+
+    /**
+     * Creates the application core.
+     * @param provider the network provider, or null to disable networking
+     * @param addModules whether the logic and net server are updated by the application; otherwise, they are only created
+     * @param loaded called on the application thread once everything has loaded
+     */
+    static ApplicationCore create(@Nullable NetProvider provider, boolean addModules, Runnable loaded){
+        Log.useColors = false;
+        Log.level = LogLevel.err;
+
+        return new ApplicationCore(){
+            @Override
+            public void setup(){
+                dataFolder.deleteDirectory();
+                Core.settings.setDataDirectory(dataFolder);
+                headless = true;
+                net = new Net(provider);
+                tree = new FileTree();
+                Vars.init();
+                world = new World(){
+                    @Override
+                    public float getDarkness(int x, int y){
+                        //for world borders
+                        return 0;
+                    }
+                };
+                content.createBaseContent();
+                mods.loadScripts();
+                content.createModContent();
+
+                logic = new Logic();
+                netServer = new NetServer();
+                if(addModules){
+                    add(logic);
+                    add(netServer);
+                }
+
+                content.init();
+
+                mods.eachClass(Mod::init);
+            }
+
+            @Override
+            public void init(){
+                super.init();
+                loaded.run();
+            }
+        };
+    }
+}
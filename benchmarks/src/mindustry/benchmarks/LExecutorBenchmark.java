@@ -0,0 +1,49 @@
+package mindustry.benchmarks;
+
+import arc.struct.*;
+import mindustry.logic.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Single instructions of looping processor programs, with and without compilation. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LExecutorBenchmark{
+    static final ObjectMap<String, String> programs = ObjectMap.of(
+    "arithmetic", "set i 0\nop add i i 1\nop mul x i 3\nop mod y x 7\nop sin z y 0\njump 1 lessThan i 1000000\nend",
+    "branches", "set a @copper\nset b null\njump 4 equal a b\nset c 1\njump 6 strictEqual a @copper\nset c 2\nop add n n 1\njump 0 always"
+    );
+
+    @Param({"arithmetic", "branches"})
+    public String program;
+
+    @Param({"false", "true"})
+    public boolean compile;
+
+    LExecutor exec;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkLauncher.launch();
+
+        LExecutor.compile = compile;
+        exec = new LExecutor();
+        exec.load(LAssembler.assemble(programs.get(program), true));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        LExecutor.compile = true;
+    }
+
+    @Benchmark
+    public LExecutor runOnce(){
+        exec.runOnce();
+        return exec;
+    }
+}
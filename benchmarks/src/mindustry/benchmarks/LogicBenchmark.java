@@ -0,0 +1,32 @@
+package mindustry.benchmarks;
+
+import arc.util.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Full game ticks on stock maps, starting from a freshly loaded map in every iteration. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogicBenchmark{
+    @Param({"groundZero", "frozenForest", "craters", "fortress", "nuclearComplex"})
+    public String map;
+
+    @Setup(Level.Iteration)
+    public void setup(){
+        BenchmarkLauncher.play(map);
+        logic.runWave();
+    }
+
+    @Benchmark
+    public void update(){
+        Time.update();
+        logic.update();
+    }
+}
@@ -0,0 +1,37 @@
+package mindustry.benchmarks;
+
+import mindustry.ai.*;
+import mindustry.ai.Pathfinder.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Complete frontier searches of the enemy core flow field on stock maps. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathfinderBenchmark{
+    @Param({"groundZero", "frozenForest", "craters", "nuclearComplex"})
+    public String map;
+
+    /** Pathfinder cost type; ground or legs. */
+    @Param({"0", "1"})
+    public int cost;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkLauncher.play(map);
+        //the live pathfinding thread would compete for the same cores
+        pathfinder.stop();
+    }
+
+    @Benchmark
+    public Flowfield updateFrontier(){
+        return pathfinder.calculateField(state.rules.waveTeam, cost, Pathfinder.fieldCore);
+    }
+}
@@ -0,0 +1,54 @@
+package mindustry.benchmarks;
+
+import mindustry.content.*;
+import mindustry.core.GameState.*;
+import mindustry.game.*;
+import mindustry.world.*;
+import mindustry.world.blocks.power.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/** Updates of a single power graph made of rows of batteries, alternating with rows of solar panels and menders. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PowerGraphBenchmark{
+    /** Width and height of the powered area, in tiles. */
+    @Param({"16", "64", "200"})
+    public int size;
+
+    PowerGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkLauncher.launch();
+        logic.reset();
+
+        Tiles tiles = world.resize(size, size);
+        world.beginMapLoad();
+        tiles.fill();
+        for(int y = 0; y < size; y++){
+            for(int x = 0; x < size; x++){
+                Block block = y % 2 == 0 ? Blocks.battery : x % 2 == 0 ? Blocks.solarPanel : Blocks.mender;
+                tiles.getn(x, y).setBlock(block, Team.sharded);
+            }
+        }
+        world.endMapLoad();
+        state.set(State.playing);
+
+        graph = world.tile(0, 0).build.power.graph;
+    }
+
+    @Benchmark
+    public float update(){
+        graph.resetFrame();
+        graph.update();
+        return graph.getLastPowerStored();
+    }
+}
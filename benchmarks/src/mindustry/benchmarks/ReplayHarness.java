@@ -0,0 +1,279 @@
+package mindustry.benchmarks;
+
+import arc.*;
+import arc.backend.headless.*;
+import arc.files.*;
+import arc.func.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.core.*;
+import mindustry.core.GameState.*;
+import mindustry.io.*;
+import mindustry.logic.*;
+import mindustry.net.*;
+import mindustry.net.Net.*;
+import mindustry.net.Packets.*;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Replays a {@link ServerRecorder} recording on a headless server as fast as possible, and reports how fast it ran.
+ * Every recorded connection is simulated with a connection that discards everything sent to it,
+ * and every tick uses its recorded delta, so the game plays out like it did on the server.
+ * Background threads and real-time checks are not replayed, so the result can drift slightly over long recordings.
+ * <p>
+ * Usage: {@code ReplayHarness <recording> [max ticks]}
+ */
+public class ReplayHarness implements ApplicationListener{
+    final ReplayProvider provider = new ReplayProvider();
+    final IntMap<ReplayConnection> connections = new IntMap<>();
+    final DataInputStream in;
+    final Reads reads;
+    final long maxTicks;
+
+    float delta;
+    boolean loaded, finished;
+    long ticks, logicTime, netTime, startTime, startAllocated;
+
+    ReplayHarness(Fi file, long maxTicks) throws IOException{
+        this.in = new DataInputStream(new InflaterInputStream(file.read(bufferSize)));
+        this.reads = new Reads(in);
+        this.maxTicks = maxTicks;
+    }
+
+    public static void main(String[] args) throws Exception{
+        if(args.length == 0){
+            System.out.println("Usage: ReplayHarness <recording> [max ticks]");
+            return;
+        }
+
+        Fi file = new Fi(args[0]);
+        if(!file.exists()){
+            System.out.println("Recording not found: " + file.absolutePath());
+            return;
+        }
+
+        ReplayHarness harness = new ReplayHarness(file, args.length > 1 ? Long.parseLong(args[1]) : Long.MAX_VALUE);
+        ApplicationCore core = BenchmarkLauncher.create(harness.provider, false, () -> {});
+        core.add(harness);
+
+        //no frame cap
+        new HeadlessApplication(core, 0f, throwable -> {
+            throwable.printStackTrace();
+            System.exit(1);
+        });
+    }
+
+    @Override
+    public void update(){
+        try{
+            if(!loaded){
+                load();
+                loaded = true;
+                return;
+            }
+
+            if(ticks >= maxTicks || !readTick()){
+                finish();
+                return;
+            }
+
+            long time = Time.nanos();
+            asyncCore.begin();
+            logic.update();
+            long logicEnd = Time.nanos();
+            netServer.update();
+            asyncCore.end();
+
+            logicTime += logicEnd - time;
+            netTime += Time.nanos() - logicEnd;
+            ticks ++;
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void load() throws IOException{
+        byte[] header = new byte[ServerRecorder.header.length];
+        in.readFully(header);
+        if(!Arrays.equals(header, ServerRecorder.header)) throw new IOException("Not a server recording.");
+
+        int version = in.readInt();
+        if(version != ServerRecorder.version) throw new IOException("Unsupported recording version: " + version);
+
+        long seed0 = in.readLong(), seed1 = in.readLong(), globalSeed0 = in.readLong(), globalSeed1 = in.readLong();
+        byte[] save = new byte[in.readInt()];
+        in.readFully(save);
+
+        SaveIO.load(new InflaterInputStream(new ByteArrayInputStream(save)), world.context);
+        state.rules.sector = null;
+        state.set(State.playing);
+        netServer.openServer();
+
+        Mathf.rand.seed0 = seed0;
+        Mathf.rand.seed1 = seed1;
+        GlobalVars.rand.seed0 = globalSeed0;
+        GlobalVars.rand.seed1 = globalSeed1;
+
+        Time.setDeltaProvider(() -> delta);
+        profiler.reset();
+        profiler.enabled = true;
+
+        System.out.println("Loaded " + state.map.plainName() + " (" + world.width() + "x" + world.height() + ").");
+        startAllocated = allocated();
+        startTime = Time.nanos();
+    }
+
+    /** Handles everything received before the next tick. @return false if the recording has ended */
+    boolean readTick() throws IOException{
+        while(true){
+            int type = in.read();
+            if(type == -1) return false;
+
+            switch(type){
+                case ServerRecorder.entryTick:
+                    delta = in.readFloat();
+                    return true;
+                case ServerRecorder.entryConnect:{
+                    ReplayConnection con = new ReplayConnection(in.readInt(), in.readUTF());
+                    connections.put(con.id, con);
+                    provider.connections.add(con);
+
+                    Connect packet = new Connect();
+                    packet.addressTCP = con.address;
+                    net.handleServerReceived(con, packet);
+                    break;
+                }
+                case ServerRecorder.entryPacket:{
+                    ReplayConnection con = connections.get(in.readInt());
+                    Packet packet = Net.newPacket(in.readByte());
+                    packet.read(reads, in.readInt());
+                    if(con != null){
+                        net.handleServerReceived(con, packet);
+                    }
+                    break;
+                }
+                case ServerRecorder.entryDisconnect:{
+                    ReplayConnection con = connections.remove(in.readInt());
+                    Disconnect packet = new Disconnect();
+                    packet.reason = in.readUTF();
+                    if(con != null){
+                        net.handleServerReceived(con, packet);
+                        provider.connections.remove(con, true);
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown entry type: " + type);
+            }
+        }
+    }
+
+    void finish(){
+        if(finished) return;
+        finished = true;
+
+        long time = Time.nanos() - startTime;
+        double seconds = time / 1e9, perTick = Math.max(ticks, 1);
+
+        System.out.printf(Locale.ROOT, "Replayed %d ticks in %.2fs: %.1f ticks/s, %.3f ms/tick.%n", ticks, seconds, ticks / seconds, time / 1e6 / perTick);
+
+        if(startAllocated >= 0){
+            double bytes = allocated() - startAllocated;
+            System.out.printf(Locale.ROOT, "Allocated %.1f MB on the main thread: %.1f MB/s, %.1f KB/tick.%n", bytes / 1024 / 1024, bytes / 1024 / 1024 / seconds, bytes / 1024 / perTick);
+        }
+
+        System.out.println("Time per system:");
+        row("logic.update", logicTime, ticks, 0, time);
+        for(int i = 0; i < TickProfiler.names.length; i++){
+            row("  " + TickProfiler.names[i], profiler.total(i), profiler.count(i), profiler.max(i), time);
+        }
+        row("netServer.update", netTime, ticks, 0, time);
+
+        Core.app.exit();
+    }
+
+    static void row(String name, long total, long count, long max, long time){
+        System.out.printf(Locale.ROOT, "  %-18s %8.1f ms %5.1f%% %9.1f us avg%s%n", name, total / 1e6, total * 100.0 / time,
+            count == 0 ? 0.0 : total / 1e3 / count, max > 0 ? String.format(Locale.ROOT, " %9.1f us max", max / 1e3) : "");
+    }
+
+    /** @return bytes allocated by the current thread so far, or -1 if this is not supported by the JVM */
+    static long allocated(){
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean){
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)bean;
+            if(sun.isThreadAllocatedMemorySupported()){
+                return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /** A recorded client. Everything sent to it is discarded. */
+    static class ReplayConnection extends NetConnection{
+        final int id;
+
+        ReplayConnection(int id, String address){
+            super(address);
+            this.id = id;
+        }
+
+        @Override
+        public void send(Object object, boolean reliable){
+        }
+
+        @Override
+        public void close(){
+        }
+    }
+
+    /** Hosts a server that only has the replayed connections. */
+    static class ReplayProvider implements NetProvider{
+        final Seq<NetConnection> connections = new Seq<>();
+
+        @Override
+        public void connectClient(String ip, int port, Runnable success) throws IOException{
+            throw new IOException("Replays cannot connect to servers.");
+        }
+
+        @Override
+        public void sendClient(Object object, boolean reliable){
+        }
+
+        @Override
+        public void disconnectClient(){
+        }
+
+        @Override
+        public void discoverServers(Cons<Host> callback, Runnable done){
+            done.run();
+        }
+
+        @Override
+        public void pingHost(String address, int port, Cons<Host> valid, Cons<Exception> failed){
+            failed.get(new IOException("Replays cannot ping servers."));
+        }
+
+        @Override
+        public void hostServer(int port){
+        }
+
+        @Override
+        public Iterable<? extends NetConnection> getConnections(){
+            return connections;
+        }
+
+        @Override
+        public void closeServer(){
+            connections.clear();
+        }
+    }
+}
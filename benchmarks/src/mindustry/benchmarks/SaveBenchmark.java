@@ -0,0 +1,45 @@
+package mindustry.benchmarks;
+
+import arc.util.io.*;
+import mindustry.io.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/** Writing and loading complete compressed saves of stock maps. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaveBenchmark{
+    @Param({"groundZero", "frozenForest", "nuclearComplex"})
+    public String map;
+
+    ReusableByteOutStream out = new ReusableByteOutStream();
+    byte[] save;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkLauncher.play(map);
+        save = write();
+    }
+
+    @Benchmark
+    public byte[] write(){
+        out.reset();
+        SaveIO.write(new FastDeflaterOutputStream(out), null);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public int load(){
+        SaveIO.load(new InflaterInputStream(new ByteArrayInputStream(save)), world.context);
+        return world.width();
+    }
+}
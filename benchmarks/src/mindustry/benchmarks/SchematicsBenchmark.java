@@ -0,0 +1,39 @@
+package mindustry.benchmarks;
+
+import arc.files.*;
+import arc.struct.*;
+import mindustry.game.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/** Reading every base part schematic bundled with the game. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchematicsBenchmark{
+    Seq<byte[]> files = new Seq<>();
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkLauncher.launch();
+
+        for(Fi file : new Fi("baseparts").list()){
+            if(file.extension().equals("msch")){
+                files.add(file.readBytes());
+            }
+        }
+    }
+
+    @Benchmark
+    public void read(Blackhole hole) throws IOException{
+        for(byte[] data : files){
+            hole.consume(Schematics.read(new ByteArrayInputStream(data)));
+        }
+    }
+}
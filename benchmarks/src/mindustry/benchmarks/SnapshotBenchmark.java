@@ -0,0 +1,75 @@
+package mindustry.benchmarks;
+
+import arc.math.*;
+import mindustry.content.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+import mindustry.net.*;
+import mindustry.net.Administration.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Entity snapshots for a single player, on a map filled with units.
+ * Nothing changes between snapshots, so with delta snapshots on, this mostly measures skipping unchanged entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark{
+    @Param({"100", "1000", "5000"})
+    public int units;
+
+    /** Values of {@link Config#snapshotDelta} and {@link Config#snapshotInterest}. */
+    @Param({"true", "false"})
+    public boolean delta, interest;
+
+    Player player;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        BenchmarkLauncher.play("nuclearComplex");
+        Config.snapshotDelta.set(delta);
+        Config.snapshotInterest.set(interest);
+
+        Rand rand = new Rand(0);
+        for(int i = 0; i < units; i++){
+            (i % 2 == 0 ? UnitTypes.dagger : UnitTypes.flare).spawn(i % 3 == 0 ? state.rules.waveTeam : Team.sharded,
+                rand.random(world.unitWidth()), rand.random(world.unitHeight()));
+        }
+        Groups.unit.update();
+
+        player = Player.create();
+        player.name = "benchmark";
+        player.team(Team.sharded);
+        player.set(world.unitWidth() / 2f, world.unitHeight() / 2f);
+        player.con = new NetConnection("127.0.0.1"){
+            @Override
+            public void send(Object object, boolean reliable){
+            }
+
+            @Override
+            public void close(){
+            }
+        };
+        player.add();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        Config.snapshotDelta.set(true);
+        Config.snapshotInterest.set(true);
+    }
+
+    @Benchmark
+    public void writeEntitySnapshot() throws IOException{
+        netServer.writeEntitySnapshot(player);
+    }
+}
@@ -252,8 +252,10 @@ public class Vars implements Loadable{
     public static AsyncCore asyncCore;
     public static BaseRegistry bases;
     public static GlobalVars logicVars;
+    public static LogicScheduler logicScheduler;
     public static MapEditor editor;
     public static GameService service = new GameService();
+    public static TickProfiler profiler = new TickProfiler();
 
     public static Universe universe;
     public static World world;
@@ -281,6 +283,11 @@ public class Vars implements Loadable{
 
     public static void init(){
         Groups.init();
+        Groups.unit.setListeners(unit -> {
+            if(state != null) state.teams.unitAdded(unit);
+        }, unit -> {
+            if(state != null) state.teams.unitRemoved(unit);
+        });
 
         if(loadLocales){
             //load locales
@@ -337,6 +344,7 @@ public class Vars implements Loadable{
         fogControl = new FogControl();
         bases = new BaseRegistry();
         logicVars = new GlobalVars();
+        logicScheduler = new LogicScheduler();
         javaPath =
             new Fi(OS.prop("java.home")).child("bin/java").exists() ? new Fi(OS.prop("java.home")).child("bin/java").absolutePath() :
             Core.files.local("jre/bin/java").exists() ? Core.files.local("jre/bin/java").absolutePath() : // Unix
@@ -14,6 +14,7 @@ import mindustry.gen.*;
 import mindustry.logic.*;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.blocks.environment.*;
 import mindustry.world.meta.*;
 
 import static mindustry.Vars.*;
@@ -91,27 +92,38 @@ public class BlockIndexer{
                 }
             }
 
-            for(Tile tile : world.tiles){
-                process(tile);
+            //scan flat ID arrays; only tiles with buildings are visited
+            short[] floorIds = world.tiles.floorIds(), overlayIds = world.tiles.overlayIds(), blockIds = world.tiles.blockIds();
+            Bits buildings = world.tiles.buildingBits();
+            Seq<Block> blocks = content.blocks();
+            int width = world.width();
 
-                var drop = tile.drop();
+            for(int i = 0; i < blockIds.length; i++){
+                if(buildings.get(i)){
+                    process(world.tiles.geti(i));
+                }
+
+                Block block = blocks.get(blockIds[i]);
+                Floor floor = blocks.get(floorIds[i]).asFloor(), overlay = blocks.get(overlayIds[i]).asFloor();
+                int x = i % width, y = i / width;
+                Item drop = overlay == Blocks.air || overlay.itemDrop == null ? floor.itemDrop : overlay.itemDrop;
 
                 if(drop != null){
-                    int qx = (tile.x / quadrantSize);
-                    int qy = (tile.y / quadrantSize);
+                    int qx = (x / quadrantSize);
+                    int qy = (y / quadrantSize);
 
                     //add position of quadrant to list
-                    if(tile.block() == Blocks.air){
+                    if(block == Blocks.air){
                         if(ores[drop.id] == null){
                             ores[drop.id] = new IntSeq[quadWidth][quadHeight];
                         }
                         if(ores[drop.id][qx][qy] == null){
                             ores[drop.id][qx][qy] = new IntSeq(false, 16);
                         }
-                        ores[drop.id][qx][qy].add(tile.pos());
+                        ores[drop.id][qx][qy].add(Point2.pack(x, y));
                         allOres.increment(drop);
-                        if(tile.overlay().itemDrop!=null) floorOresCount[tile.overlay().id] +=1;
-                        else if(tile.floor().itemDrop!=null) floorOresCount[tile.floor().id] +=1;
+                        if(overlay.itemDrop!=null) floorOresCount[overlay.id] +=1;
+                        else if(floor.itemDrop!=null) floorOresCount[floor.id] +=1;
                     }else{
                         if(oresWall[drop.id] == null){
                             oresWall[drop.id] = new IntSeq[quadWidth][quadHeight];
@@ -119,26 +131,26 @@ public class BlockIndexer{
                         if(oresWall[drop.id][qx][qy] == null){
                             oresWall[drop.id][qx][qy] = new IntSeq(false, 16);
                         }
-                        oresWall[drop.id][qx][qy].add(tile.pos());
+                        oresWall[drop.id][qx][qy].add(Point2.pack(x, y));
                         allOresWall.increment(drop);
-                        if(tile.overlay().itemDrop!=null) wallOresCount[tile.overlay().id] +=1;
+                        if(overlay.itemDrop!=null) wallOresCount[overlay.id] +=1;
                     }
                 }
-                if(tile.block()!=null && tile.block().itemDrop!=null){
-                    int qx = (tile.x / quadrantSize);
-                    int qy = (tile.y / quadrantSize);
-                    if(oresWall[tile.block().itemDrop.id] == null){
-                        oresWall[tile.block().itemDrop.id] = new IntSeq[quadWidth][quadHeight];
+                if(block!=null && block.itemDrop!=null){
+                    int qx = (x / quadrantSize);
+                    int qy = (y / quadrantSize);
+                    if(oresWall[block.itemDrop.id] == null){
+                        oresWall[block.itemDrop.id] = new IntSeq[quadWidth][quadHeight];
                     }
-                    if(oresWall[tile.block().itemDrop.id][qx][qy] == null){
-                        oresWall[tile.block().itemDrop.id][qx][qy] = new IntSeq(false, 16);
+                    if(oresWall[block.itemDrop.id][qx][qy] == null){
+                        oresWall[block.itemDrop.id][qx][qy] = new IntSeq(false, 16);
                     }
-                    oresWall[tile.block().itemDrop.id][qx][qy].add(tile.pos());
-                    allOresWall.increment(tile.block().itemDrop);
-                    wallOresCount[tile.block().id] +=1;
+                    oresWall[block.itemDrop.id][qx][qy].add(Point2.pack(x, y));
+                    allOresWall.increment(block.itemDrop);
+                    wallOresCount[block.id] +=1;
                 }
-                if(tile.block()!=null && tile.floor().liquidDrop!=null){
-                    floorOresCount[tile.floor().id] +=1;
+                if(block!=null && floor.liquidDrop!=null){
+                    floorOresCount[floor.id] +=1;
                 }
             }
         });
@@ -418,6 +430,11 @@ public class BlockIndexer{
         }
     }
 
+    /** @return teams that have buildings in the world. Do not modify. */
+    public Seq<Team> activeTeams(){
+        return activeTeams;
+    }
+
     public void allBuildings(float x, float y, float range, Cons<Building> cons){
         breturnArray.clear();
         for(int i = 0; i < activeTeams.size; i++){
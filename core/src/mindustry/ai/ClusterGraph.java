@@ -0,0 +1,418 @@
+package mindustry.ai;
+
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.ai.Pathfinder.*;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+import static mindustry.ai.Pathfinder.*;
+
+/**
+ * Abstract path graph for one team and cost type, used by {@link ControlPathfinder} to plan long paths (HPA*).
+ * The map is split into square clusters. Adjacent clusters are connected through portal tiles on their shared border,
+ * and the cheapest path between every pair of portals inside a cluster is cached. Clusters are rebuilt lazily after they change.
+ * Not thread-safe; all access except {@link #invalidate} must be synchronized on the graph.
+ */
+public class ClusterGraph{
+    /** Size of a cluster, in tiles. */
+    public static final int clusterSize = 16;
+    /** Border openings longer than this get a portal at each end instead of one in the middle. */
+    static final int maxSinglePortal = 6;
+
+    final int team;
+    final PathCost cost;
+    final int width, height, cwidth, cheight;
+
+    /** Portal pairs between each cluster and its right neighbor, stored as (inside, outside) tile positions. */
+    final IntSeq[] bordersX;
+    /** Portal pairs between each cluster and its top neighbor, stored as (inside, outside) tile positions. */
+    final IntSeq[] bordersY;
+    /** Portal tiles of each cluster. */
+    final IntSeq[] nodes;
+    /** Row-major matrix of path costs between the portals of each cluster; -1 if there is no path. */
+    final int[][] nodeCosts;
+    /** Clusters whose tiles have changed since the last update. */
+    final boolean[] dirty;
+    boolean anyDirty = true;
+    /** Positions of tiles changed since the last update; synchronize on this when accessing. */
+    final IntSeq changed = new IntSeq();
+    /** Set instead of queueing tiles once too many have changed; synchronize on {@link #changed} when accessing. */
+    boolean allChanged;
+
+    //temporary search state
+    final int[] localCosts = new int[clusterSize * clusterSize], startCosts = new int[clusterSize * clusterSize], goalCosts = new int[clusterSize * clusterSize];
+    final int[] localParents = new int[clusterSize * clusterSize];
+    final PathfindQueue queue = new PathfindQueue();
+    final IntFloatMap gscore = new IntFloatMap();
+    final IntIntMap cameFrom = new IntIntMap();
+    final IntSeq waypoints = new IntSeq(), segment = new IntSeq();
+
+    public ClusterGraph(int team, PathCost cost, int width, int height){
+        this.team = team;
+        this.cost = cost;
+        this.width = width;
+        this.height = height;
+        this.cwidth = (width + clusterSize - 1) / clusterSize;
+        this.cheight = (height + clusterSize - 1) / clusterSize;
+
+        int clusters = cwidth * cheight;
+        bordersX = new IntSeq[clusters];
+        bordersY = new IntSeq[clusters];
+        nodes = new IntSeq[clusters];
+        nodeCosts = new int[clusters][0];
+        dirty = new boolean[clusters];
+
+        for(int i = 0; i < clusters; i++){
+            bordersX[i] = new IntSeq();
+            bordersY[i] = new IntSeq();
+            nodes[i] = new IntSeq();
+        }
+
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * Queues the clusters around a tile to be rebuilt on the next update.
+     * Thread-safe, and never waits for a search on the graph to finish.
+     */
+    public void invalidate(int x, int y){
+        synchronized(changed){
+            if(allChanged) return;
+
+            //a graph that is not searched for a while would queue every change; rebuild everything instead
+            if(changed.size >= dirty.length * 4){
+                allChanged = true;
+                changed.clear();
+            }else{
+                changed.add(Point2.pack(x, y));
+            }
+        }
+    }
+
+    /** Marks the clusters around a tile as changed. */
+    void markDirty(int x, int y){
+        for(int dx = -1; dx <= 1; dx++){
+            for(int dy = -1; dy <= 1; dy++){
+                int tx = x + dx, ty = y + dy;
+                if(tx < 0 || ty < 0 || tx >= width || ty >= height) continue;
+
+                dirty[tx / clusterSize + ty / clusterSize * cwidth] = true;
+            }
+        }
+        anyDirty = true;
+    }
+
+    /**
+     * Finds a full-resolution path between two tiles by searching the cluster graph and refining each abstract step inside its cluster.
+     * Walls that are only passable with {@link ControlPathfinder}'s enemy wall cost are treated as solid.
+     * @param out receives every tile of the path after the start, ending with the goal.
+     * @return whether a path was found.
+     */
+    public boolean findPath(int start, int goal, IntSeq out){
+        update();
+
+        if(!passable(start) || !passable(goal)) return false;
+
+        int startCluster = clusterOf(start), goalCluster = clusterOf(goal);
+
+        search(startCluster, start, startCosts, null);
+        search(goalCluster, goal, goalCosts, null);
+
+        gscore.clear();
+        cameFrom.clear();
+        queue.clear();
+
+        gscore.put(start, 0f);
+        queue.add(start, heuristic(start, goal));
+
+        boolean found = false;
+
+        while(queue.size > 0){
+            int current = queue.poll();
+
+            if(current == goal){
+                found = true;
+                break;
+            }
+
+            float currentCost = gscore.get(current);
+            int cluster = clusterOf(current);
+            IntSeq list = nodes[cluster];
+
+            if(current == start){
+                //the start tile is connected to every portal it can reach in its cluster
+                for(int i = 0; i < list.size; i++){
+                    int c = startCosts[local(list.items[i])];
+                    if(c >= 0) relax(current, list.items[i], currentCost + c, goal);
+                }
+
+                if(startCluster == goalCluster && startCosts[local(goal)] >= 0){
+                    relax(current, goal, currentCost + startCosts[local(goal)], goal);
+                }
+            }else{
+                int index = list.indexOf(current);
+                if(index == -1) continue;
+
+                //other portals in the same cluster
+                int[] costs = nodeCosts[cluster];
+                for(int i = 0; i < list.size; i++){
+                    int c = costs[index * list.size + i];
+                    if(i != index && c >= 0) relax(current, list.items[i], currentCost + c, goal);
+                }
+
+                //the goal, if it is in the same cluster
+                if(cluster == goalCluster){
+                    int c = goalCosts[local(current)];
+                    if(c >= 0) relax(current, goal, currentCost + c, goal);
+                }
+            }
+
+            //portals on the other side of each border; the start tile may be a portal itself
+            int cx = cluster % cwidth, cy = cluster / cwidth;
+            relaxBorder(current, bordersX[cluster], 0, currentCost, goal);
+            relaxBorder(current, bordersY[cluster], 0, currentCost, goal);
+            if(cx > 0) relaxBorder(current, bordersX[cluster - 1], 1, currentCost, goal);
+            if(cy > 0) relaxBorder(current, bordersY[cluster - cwidth], 1, currentCost, goal);
+        }
+
+        if(!found) return false;
+
+        waypoints.clear();
+        int cur = goal;
+        while(cur != start){
+            waypoints.add(cur);
+            cur = cameFrom.get(cur);
+        }
+        waypoints.add(start);
+        waypoints.reverse();
+
+        //refine the abstract path into tiles
+        out.clear();
+        for(int i = 0; i < waypoints.size - 1; i++){
+            int from = waypoints.items[i], to = waypoints.items[i + 1];
+
+            if(clusterOf(from) != clusterOf(to)){
+                //portal pairs are always adjacent
+                out.add(to);
+            }else{
+                segment.clear();
+                if(!search(clusterOf(from), from, localCosts, localParents) || localCosts[local(to)] < 0) return false;
+
+                for(int pos = to; pos != from; pos = localParents[local(pos)]){
+                    segment.add(pos);
+                }
+                segment.reverse();
+                out.addAll(segment);
+            }
+        }
+
+        return true;
+    }
+
+    /** Rebuilds portals and portal costs of all changed clusters. */
+    void update(){
+        synchronized(changed){
+            if(allChanged){
+                Arrays.fill(dirty, true);
+                anyDirty = true;
+                allChanged = false;
+            }
+
+            for(int i = 0; i < changed.size; i++){
+                markDirty(Point2.x(changed.items[i]), Point2.y(changed.items[i]));
+            }
+            changed.clear();
+        }
+
+        if(!anyDirty) return;
+        anyDirty = false;
+
+        int clusters = cwidth * cheight;
+        boolean[] rebuild = new boolean[clusters];
+
+        for(int c = 0; c < clusters; c++){
+            if(!dirty[c]) continue;
+
+            int cx = c % cwidth, cy = c / cwidth;
+
+            //borders are shared, so neighbors need their portal costs recalculated too
+            rebuild[c] = true;
+            if(cx + 1 < cwidth){
+                rebuildBorderX(c);
+                rebuild[c + 1] = true;
+            }
+            if(cy + 1 < cheight){
+                rebuildBorderY(c);
+                rebuild[c + cwidth] = true;
+            }
+            if(cx > 0){
+                rebuildBorderX(c - 1);
+                rebuild[c - 1] = true;
+            }
+            if(cy > 0){
+                rebuildBorderY(c - cwidth);
+                rebuild[c - cwidth] = true;
+            }
+        }
+
+        Arrays.fill(dirty, false);
+
+        for(int c = 0; c < clusters; c++){
+            if(rebuild[c]) rebuildCluster(c);
+        }
+    }
+
+    void rebuildBorderX(int cluster){
+        int cx = cluster % cwidth, cy = cluster / cwidth;
+        int x = (cx + 1) * clusterSize - 1, y = cy * clusterSize;
+        findPortals(bordersX[cluster], x, y, 0, 1, Math.min(clusterSize, height - y), 1, 0);
+    }
+
+    void rebuildBorderY(int cluster){
+        int cx = cluster % cwidth, cy = cluster / cwidth;
+        int x = cx * clusterSize, y = (cy + 1) * clusterSize - 1;
+        findPortals(bordersY[cluster], x, y, 1, 0, Math.min(clusterSize, width - x), 0, 1);
+    }
+
+    /** Finds openings along a border and places portals in them. */
+    void findPortals(IntSeq out, int x, int y, int stepX, int stepY, int length, int offsetX, int offsetY){
+        out.clear();
+
+        int runStart = -1;
+        for(int i = 0; i <= length; i++){
+            boolean open = false;
+            if(i < length){
+                int tx = x + stepX * i, ty = y + stepY * i;
+                open = passable(tx + ty * width) && passable(tx + offsetX + (ty + offsetY) * width);
+            }
+
+            if(open && runStart == -1){
+                runStart = i;
+            }else if(!open && runStart != -1){
+                int runEnd = i - 1;
+
+                if(runEnd - runStart + 1 > maxSinglePortal){
+                    addPortal(out, x, y, stepX, stepY, runStart, offsetX, offsetY);
+                    addPortal(out, x, y, stepX, stepY, runEnd, offsetX, offsetY);
+                }else{
+                    addPortal(out, x, y, stepX, stepY, (runStart + runEnd) / 2, offsetX, offsetY);
+                }
+
+                runStart = -1;
+            }
+        }
+    }
+
+    void addPortal(IntSeq out, int x, int y, int stepX, int stepY, int i, int offsetX, int offsetY){
+        int tx = x + stepX * i, ty = y + stepY * i;
+        out.add(tx + ty * width, tx + offsetX + (ty + offsetY) * width);
+    }
+
+    void rebuildCluster(int cluster){
+        int cx = cluster % cwidth, cy = cluster / cwidth;
+        IntSeq list = nodes[cluster];
+        list.clear();
+
+        addNodes(list, bordersX[cluster], 0);
+        addNodes(list, bordersY[cluster], 0);
+        if(cx > 0) addNodes(list, bordersX[cluster - 1], 1);
+        if(cy > 0) addNodes(list, bordersY[cluster - cwidth], 1);
+
+        int size = list.size;
+        int[] costs = nodeCosts[cluster].length >= size * size ? nodeCosts[cluster] : (nodeCosts[cluster] = new int[size * size]);
+
+        for(int i = 0; i < size; i++){
+            search(cluster, list.items[i], localCosts, null);
+            for(int j = 0; j < size; j++){
+                costs[i * size + j] = localCosts[local(list.items[j])];
+            }
+        }
+    }
+
+    void addNodes(IntSeq out, IntSeq border, int side){
+        for(int i = side; i < border.size; i += 2){
+            if(!out.contains(border.items[i])) out.add(border.items[i]);
+        }
+    }
+
+    void relaxBorder(int current, IntSeq border, int side, float currentCost, int goal){
+        for(int i = 0; i < border.size; i += 2){
+            if(border.items[i + side] == current){
+                int other = border.items[i + 1 - side];
+                relax(current, other, currentCost + cost.getCost(team, pathfinder.tiles[other]), goal);
+            }
+        }
+    }
+
+    void relax(int from, int to, float newCost, int goal){
+        if(!gscore.containsKey(to) || newCost < gscore.get(to)){
+            gscore.put(to, newCost);
+            cameFrom.put(to, from);
+            queue.add(to, newCost + heuristic(to, goal));
+        }
+    }
+
+    /**
+     * Runs Dijkstra from a tile, limited to the bounds of its cluster.
+     * @param costs receives the path cost to each tile of the cluster, indexed by {@link #local(int)}; -1 if unreachable.
+     * @param parents if not null, receives the previous tile of the path to each tile.
+     * @return whether the start tile is passable.
+     */
+    boolean search(int cluster, int start, int[] costs, int[] parents){
+        Arrays.fill(costs, -1);
+        if(!passable(start)) return false;
+
+        int minX = cluster % cwidth * clusterSize, minY = cluster / cwidth * clusterSize;
+        int maxX = Math.min(minX + clusterSize, width) - 1, maxY = Math.min(minY + clusterSize, height) - 1;
+
+        queue.clear();
+        costs[local(start)] = 0;
+        queue.add(start, 0f);
+
+        while(queue.size > 0){
+            int current = queue.poll();
+            int currentCost = costs[local(current)];
+            int x = current % width, y = current / width;
+
+            for(Point2 point : Geometry.d4){
+                int nx = x + point.x, ny = y + point.y;
+                if(nx < minX || ny < minY || nx > maxX || ny > maxY) continue;
+
+                int next = nx + ny * width;
+                if(!passable(next)) continue;
+
+                int newCost = currentCost + cost.getCost(team, pathfinder.tiles[next]);
+                int index = local(next);
+
+                if(costs[index] < 0 || newCost < costs[index]){
+                    costs[index] = newCost;
+                    if(parents != null) parents[index] = current;
+                    queue.add(next, newCost);
+                }
+            }
+        }
+
+        queue.clear();
+        return true;
+    }
+
+    boolean passable(int pos){
+        int c = ControlPathfinder.cost(team, cost, pos);
+        return c != impassable && c < ControlPathfinder.wallImpassableCap;
+    }
+
+    int clusterOf(int pos){
+        return (pos % width) / clusterSize + (pos / width) / clusterSize * cwidth;
+    }
+
+    /** @return index of a tile inside its cluster. */
+    int local(int pos){
+        return (pos % width) % clusterSize + (pos / width) % clusterSize * clusterSize;
+    }
+
+    float heuristic(int a, int b){
+        return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+    }
+}
@@ -22,7 +22,7 @@ public class ControlPathfinder{
     private static final long maxUpdate = Time.millisToNanos(30);
     private static final int updateFPS = 60;
     private static final int updateInterval = 1000 / updateFPS;
-    private static final int wallImpassableCap = 1_000_000;
+    static final int wallImpassableCap = 1_000_000;
 
     public static final PathCost
 
@@ -62,6 +62,10 @@ public class ControlPathfinder{
     (PathTile.nearGround(tile) || PathTile.nearSolid(tile) ? 6 : 0);
 
     public static boolean showDebug = false;
+    /** If true, long paths are planned on a cluster graph before falling back to a full-resolution search. */
+    public static boolean hierarchical = true;
+    /** If true, units with the same destination starting in the same cluster share one computed path. */
+    public static boolean sharePaths = true;
 
     //static access probably faster than object access
     static int wwidth, wheight;
@@ -74,6 +78,10 @@ public class ControlPathfinder{
     int lastTargetId = 1;
     /** requests per-unit */
     ObjectMap<Unit, PathRequest> requests = new ObjectMap<>();
+    /** cluster graphs per team and cost type; synchronize on this when accessing */
+    final Seq<ClusterGraph> graphs = new Seq<>();
+    /** computed paths shared between requests */
+    final PathCache pathCache = new PathCache();
 
     public ControlPathfinder(){
 
@@ -82,6 +90,11 @@ public class ControlPathfinder{
             wwidth = world.width();
             wheight = world.height();
 
+            synchronized(graphs){
+                graphs.clear();
+            }
+            pathCache.clear();
+
             start();
         });
 
@@ -96,6 +109,13 @@ public class ControlPathfinder{
             if(e.tile.solid()){
                 worldUpdateId ++;
             }
+
+            //costs of any tile can change, not just solid ones; graphs rebuild the queued clusters on their own thread
+            synchronized(graphs){
+                for(var graph : graphs){
+                    e.tile.getLinkedTiles(t -> graph.invalidate(t.x, t.y));
+                }
+            }
         });
 
         Events.on(ResetEvent.class, event -> stop());
@@ -108,6 +128,8 @@ public class ControlPathfinder{
                     //concurrent modification!
                     Core.app.post(() -> requests.remove(req.unit));
                     req.thread.queue.post(() -> req.thread.requests.remove(req));
+                    //don't leave other requests waiting on a path that will never be finished
+                    pathCache.release(req);
                 }
             }
         });
@@ -158,6 +180,19 @@ public class ControlPathfinder{
     }
 
 
+    /** @return the cluster graph for a team and cost type, creating it if necessary. Thread-safe. */
+    ClusterGraph getGraph(int team, PathCost cost){
+        synchronized(graphs){
+            for(var graph : graphs){
+                if(graph.team == team && graph.cost == cost) return graph;
+            }
+
+            var graph = new ClusterGraph(team, cost, wwidth, wheight);
+            graphs.add(graph);
+            return graph;
+        }
+    }
+
     /** @return the next target ID to use as a unique path identifier. */
     public int nextTargetId(){
         return lastTargetId ++;
@@ -415,7 +450,7 @@ public class ControlPathfinder{
         return cost.getCost(team, pathfinder.tiles[tilePos]);
     }
 
-    private static int cost(int team, PathCost cost, int tilePos){
+    static int cost(int team, PathCost cost, int tilePos){
         if(state.rules.limitMapArea && !Team.get(team).isAI()){
             int x = tilePos % wwidth, y = tilePos / wwidth;
             if(x < state.rules.limitX || y < state.rules.limitY || x > state.rules.limitX + state.rules.limitWidth || y > state.rules.limitY + state.rules.limitHeight){
@@ -440,6 +475,111 @@ public class ControlPathfinder{
         return cost(team, type, b);
     }
 
+    /** Shares computed paths between requests with the same team, cost type, destination tile and starting cluster. Thread-safe. */
+    static class PathCache{
+        /** how long requests wait for another request that is calculating the same path, in milliseconds */
+        static final long pendingTimeout = 1000;
+        /** how many nodes at the start of a shared path are checked for a straight line from a different start tile */
+        static final int maxConnectNodes = 8;
+        static final int maxEntries = 1024;
+
+        final ObjectMap<PathCost, LongMap<CachedPath>> entries = new ObjectMap<>();
+        int size;
+
+        static long key(PathRequest req){
+            int cwidth = (wwidth + ClusterGraph.clusterSize - 1) / ClusterGraph.clusterSize;
+            int region = (req.start % wwidth) / ClusterGraph.clusterSize + (req.start / wwidth) / ClusterGraph.clusterSize * cwidth;
+            return (req.team & 0xff) | ((long)req.goal << 8) | ((long)region << 40);
+        }
+
+        /** @return the entry for a request, or null if there is none that is still valid. */
+        synchronized @Nullable CachedPath get(PathRequest req){
+            var map = entries.get(req.cost);
+            if(map == null) return null;
+
+            long key = key(req);
+            var entry = map.get(key);
+            if(entry != null && entry.worldUpdateId != worldUpdateId){
+                map.remove(key);
+                size --;
+                return null;
+            }
+            return entry;
+        }
+
+        /** Registers a request as calculating the path for its key. */
+        synchronized void begin(PathRequest req){
+            if(size >= maxEntries){
+                clear();
+            }
+
+            var map = entries.get(req.cost, LongMap::new);
+            long key = key(req);
+            var entry = map.get(key);
+            if(entry == null){
+                map.put(key, new CachedPath(req));
+                size ++;
+            }else if(!entry.ready && entry.owner != req && Time.timeSinceMillis(entry.created) >= pendingTimeout){
+                //the request calculating this path is taking too long or was dropped; take it over
+                entry.owner = req;
+                entry.created = Time.millis();
+            }
+        }
+
+        /** Removes the entry a request is calculating, if any. Called when the request is discarded before it finishes. */
+        synchronized void release(PathRequest req){
+            if(req.cost == null) return;
+
+            var map = entries.get(req.cost);
+            if(map == null) return;
+
+            long key = key(req);
+            var entry = map.get(key);
+            if(entry != null && entry.owner == req){
+                map.remove(key);
+                size --;
+            }
+        }
+
+        /** Stores the result of a request, if it was the one calculating the path for its key. */
+        synchronized void complete(PathRequest req, boolean found){
+            var map = entries.get(req.cost);
+            if(map == null) return;
+
+            long key = key(req);
+            var entry = map.get(key);
+            if(entry == null || entry.owner != req) return;
+
+            if(found && entry.worldUpdateId == worldUpdateId){
+                entry.tiles.addAll(req.result);
+                entry.ready = true;
+                entry.owner = null;
+            }else{
+                map.remove(key);
+                size --;
+            }
+        }
+
+        synchronized void clear(){
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    static class CachedPath{
+        final IntSeq tiles = new IntSeq();
+        final int worldUpdateId;
+        volatile long created = Time.millis();
+        volatile @Nullable PathRequest owner;
+        /** volatile, as tiles are read outside of the cache lock once this is set */
+        volatile boolean ready;
+
+        CachedPath(PathRequest owner){
+            this.owner = owner;
+            this.worldUpdateId = ControlPathfinder.worldUpdateId;
+        }
+    }
+
     static class PathfindThread extends Thread{
         /** handles task scheduling on the update thread. */
         TaskQueue queue = new TaskQueue();
@@ -514,6 +654,8 @@ public class ControlPathfinder{
         IntFloatMap costs = new IntFloatMap();
 
         int start, goal;
+        boolean triedHierarchical, triedCache, skipCache;
+        IntSeq hierarchicalResult = new IntSeq();
 
         long lastUpdateId;
         long lastTime;
@@ -542,12 +684,63 @@ public class ControlPathfinder{
             if(forcedRecalc || (Time.timeSinceMillis(lastTime) > 1000 * 3 && (worldUpdateId != lastWorldUpdate || !destination.epsilonEquals(lastDestination, 2f)))){
                 lastTime = Time.millis();
                 lastWorldUpdate = worldUpdateId;
+                boolean forced = forcedRecalc;
                 forcedRecalc = false;
                 clear(false);
+                //a forced recalculation means the last path didn't work out, so don't reuse it
+                skipCache = forced;
             }
 
             if(done) return;
 
+            //reuse a path computed for another unit in the same cluster, e.g. one from the same command group
+            if(!triedCache){
+                if(sharePaths && !skipCache){
+                    var entry = controlPath.pathCache.get(this);
+
+                    if(entry == null){
+                        controlPath.pathCache.begin(this);
+                    }else if(entry.ready){
+                        if(useCached(entry.tiles)){
+                            triedCache = true;
+                            foundEnd = true;
+                            finish();
+                            return;
+                        }
+                    }else if(entry.owner != this){
+                        if(Time.timeSinceMillis(entry.created) < PathCache.pendingTimeout){
+                            //another unit is already calculating this path; wait for it instead of doing the same work
+                            return;
+                        }
+                        //the owner never finished, so calculate the path here and share it instead
+                        controlPath.pathCache.begin(this);
+                    }
+                }
+                triedCache = true;
+            }
+
+            //long paths are planned on the cluster graph first, which is much cheaper than a full-resolution search
+            if(!triedHierarchical){
+                triedHierarchical = true;
+
+                if(hierarchical && heuristic(start, goal) > ClusterGraph.clusterSize * 2){
+                    var graph = controlPath.getGraph(team, cost);
+                    boolean found;
+
+                    synchronized(graph){
+                        found = graph.findPath(start, goal, hierarchicalResult);
+                    }
+
+                    if(found){
+                        result.clear();
+                        result.addAll(hierarchicalResult);
+                        foundEnd = true;
+                        finish();
+                        return;
+                    }
+                }
+            }
+
             long ns = Time.nanos();
             int counter = 0;
 
@@ -599,13 +792,8 @@ public class ControlPathfinder{
                 }
             }
 
-            lastTime = Time.millis();
-            raycastTimer = 9999f;
             result.clear();
 
-            pathIndex = 0;
-            rayPathIndex = -1;
-
             if(foundEnd){
                 int cur = goal;
                 while(cur != start){
@@ -614,10 +802,27 @@ public class ControlPathfinder{
                 }
 
                 result.reverse();
+            }
 
+            finish();
+        }
+
+        /** Smooths the result path and resets the search state. */
+        void finish(){
+            lastTime = Time.millis();
+            raycastTimer = 9999f;
+
+            pathIndex = 0;
+            rayPathIndex = -1;
+
+            if(foundEnd){
                 smoothPath();
             }
 
+            if(sharePaths){
+                controlPath.pathCache.complete(this, foundEnd);
+            }
+
             //don't keep this around in memory, better to dump entirely - using clear() keeps around massive arrays for paths
             frontier = new PathfindQueue();
             cameFrom = new IntIntMap();
@@ -626,6 +831,27 @@ public class ControlPathfinder{
             done = true;
         }
 
+        /**
+         * Uses a path computed for another request, starting at the first node that can be reached in a straight line.
+         * @return whether the path can be reached from the start.
+         * */
+        boolean useCached(IntSeq tiles){
+            int sx = start % wwidth, sy = start / wwidth;
+
+            for(int i = 0; i < Math.min(tiles.size, PathCache.maxConnectNodes); i++){
+                int pos = tiles.items[i];
+                if(!permissiveRaycast(team, cost, sx, sy, pos % wwidth, pos / wwidth)){
+                    result.clear();
+                    for(int j = i; j < tiles.size; j++){
+                        result.add(tiles.items[j]);
+                    }
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
         void smoothPath(){
             int len = result.size;
             if(len <= 2) return;
@@ -645,6 +871,9 @@ public class ControlPathfinder{
         }
 
         void clear(boolean resetCurrent){
+            //the start or goal may change, so a shared path this request was calculating would never be finished
+            controlPath.pathCache.release(this);
+
             done = false;
 
             frontier = new PathfindQueue(20);
@@ -660,6 +889,9 @@ public class ControlPathfinder{
             frontier.add(start, 0);
 
             foundEnd = false;
+            triedHierarchical = false;
+            triedCache = false;
+            skipCache = false;
             lastDestination.set(destination);
 
             if(resetCurrent){
@@ -2,10 +2,12 @@ package mindustry.ai;
 
 import arc.*;
 import arc.func.*;
+import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import arc.util.*;
 import mindustry.annotations.Annotations.*;
+import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.game.EventType.*;
 import mindustry.game.*;
@@ -15,12 +17,16 @@ import mindustry.world.blocks.environment.*;
 import mindustry.world.blocks.storage.*;
 import mindustry.world.meta.*;
 
+import java.util.concurrent.*;
+
 import static mindustry.Vars.*;
 
 public class Pathfinder implements Runnable{
     private static final long maxUpdate = Time.millisToNanos(8);
     private static final int updateFPS = 60;
     private static final int updateInterval = 1000 / updateFPS;
+    /** fraction of the map that can be invalidated by an incremental repair before a full recalculation is cheaper */
+    private static final float maxRepairFraction = 0.25f;
 
     /** cached world size */
     static int wwidth, wheight;
@@ -75,7 +81,18 @@ public class Pathfinder implements Runnable{
     TaskQueue queue = new TaskQueue();
     /** Current pathfinding thread */
     @Nullable Thread thread;
+    /** Worker pool for updating independent flow fields in parallel; created lazily. */
+    @Nullable ExecutorService workers;
+    /** Futures of flow fields currently being updated by workers. Pathfinding thread only. */
+    Seq<Future<?>> fieldFutures = new Seq<>();
     IntSeq tmpArray = new IntSeq();
+    /** If true, flow fields are repaired locally when tiles change instead of being recalculated from scratch. */
+    public boolean incremental = true;
+
+    //incremental repair state; pathfinding thread only
+    IntSet repairSet = new IntSet();
+    IntSeq repairList = new IntSeq(), repairLower = new IntSeq();
+    IntQueue repairQueue = new IntQueue();
 
     public Pathfinder(){
         clearCache();
@@ -91,10 +108,7 @@ public class Pathfinder implements Runnable{
             mainList = new Seq<>();
             clearCache();
 
-            for(int i = 0; i < tiles.length; i++){
-                Tile tile = world.tiles.geti(i);
-                tiles[i] = packTile(tile);
-            }
+            packTiles();
 
             //don't bother setting up paths unless necessary
             if(state.rules.waveTeam.needsFlowField() && !net.client()){
@@ -192,6 +206,70 @@ public class Pathfinder implements Runnable{
         );
     }
 
+    /**
+     * Packs every tile of the world, with the same result as {@link #packTile} for each one.
+     * Floors and blocks are read from the flat ID arrays; only tiles with buildings or static walls are visited.
+     */
+    void packTiles(){
+        int width = wwidth, height = wheight, size = width * height;
+        short[] floorIds = world.tiles.floorIds(), blockIds = world.tiles.blockIds();
+        Bits buildings = world.tiles.buildingBits();
+        Seq<Block> blocks = content.blocks();
+        //blocking: solid, and not passable for any team
+        Bits solid = new Bits(size), legSolid = new Bits(size), blocking = new Bits(size);
+
+        for(int i = 0; i < size; i++){
+            Block block = blocks.get(blockIds[i]);
+            Floor floor = blocks.get(floorIds[i]).asFloor();
+            //buildings may change their solidity, and static walls keep their darkness in the tile data
+            Tile tile = buildings.get(i) || (block.solid && block.fillsTile && !block.synthetic()) ? world.tiles.geti(i) : null;
+
+            boolean isSolid = tile != null ? tile.solid() : block.solid || floor.solid;
+            if(isSolid) solid.set(i);
+            if(isSolid && !block.teamPassable) blocking.set(i);
+            if(tile != null ? tile.legSolid() : floor.solid && block == Blocks.air) legSolid.set(i);
+        }
+
+        for(int i = 0; i < size; i++){
+            int x = i % width, y = i / width;
+            Block block = blocks.get(blockIds[i]);
+            Floor floor = blocks.get(floorIds[i]).asFloor();
+            boolean nearLiquid = false, nearSolid = false, nearLegSolid = false, nearGround = false, isSolid = solid.get(i), allDeep = floor.isDeep();
+
+            for(Point2 point : Geometry.d4){
+                int ox = x + point.x, oy = y + point.y;
+                if(ox < 0 || oy < 0 || ox >= width || oy >= height) continue;
+
+                int other = ox + oy * width;
+                Floor otherFloor = blocks.get(floorIds[other]).asFloor();
+                if(otherFloor.isLiquid) nearLiquid = true;
+                if(blocking.get(other)) nearSolid = true;
+                if(!otherFloor.isLiquid) nearGround = true;
+                if(!otherFloor.isDeep()) allDeep = false;
+                if(legSolid.get(other)) nearLegSolid = true;
+            }
+
+            Building build = buildings.get(i) ? world.tiles.geti(i).build : null;
+            int tid = build == null ? 0 : build.team.id;
+
+            tiles[i] = PathTile.get(
+                build == null || !isSolid || block instanceof CoreBlock ? 0 : Math.min((int)(build.health / 40), 80),
+                tid == 0 && build != null && state.rules.coreCapture ? 255 : tid,
+                isSolid,
+                floor.isLiquid,
+                legSolid.get(i),
+                nearLiquid,
+                nearGround,
+                nearSolid,
+                nearLegSolid,
+                floor.isDeep(),
+                floor.damageTaken > 0.00001f,
+                allDeep,
+                block.teamPassable
+            );
+        }
+    }
+
     public int get(int x, int y){
         return tiles[x + y * wwidth];
     }
@@ -207,8 +285,8 @@ public class Pathfinder implements Runnable{
         thread.start();
     }
 
-    /** Stops the pathfinding thread. */
-    private void stop(){
+    /** Stops the pathfinding thread. It is started again when the next world loads. */
+    public void stop(){
         if(thread != null){
             thread.interrupt();
             thread = null;
@@ -217,32 +295,66 @@ public class Pathfinder implements Runnable{
     }
 
     /** Update a tile in the internal pathfinding grid.
-     * Causes a complete pathfinding recalculation. Main thread only. */
+     * Causes a local repair of every flow field, or a complete recalculation if that is not possible. Main thread only. */
     public void updateTile(Tile tile){
         if(net.client()) return;
 
-        tile.getLinkedTiles(t -> {
-            int pos = t.array();
-            if(pos < tiles.length){
-                tiles[pos] = packTile(t);
-            }
-        });
+        IntSeq changed = packChanged(tile);
+
+        //fields whose targets moved can't be repaired
+        Seq<Flowfield> retargeted = new Seq<>();
 
         //can't iterate through array so use the map, which should not lead to problems
         for(Flowfield path : mainList){
             if(path != null){
                 synchronized(path.targets){
+                    tmpArray.clear();
+                    tmpArray.addAll(path.targets);
                     path.updateTargetPositions();
+
+                    if(!sameTargets(tmpArray, path.targets)){
+                        retargeted.add(path);
+                    }
                 }
             }
         }
 
-        //mark every flow field as dirty, so it updates when it's done
+        //repair every flow field, or mark it as dirty so it updates when it's done
         queue.post(() -> {
             for(Flowfield data : threadList){
-                data.dirty = true;
+                if(retargeted.contains(data, true) || !repairField(data, changed)){
+                    data.dirty = true;
+                }
+            }
+        });
+    }
+
+    /** Packs every tile of a changed building. @return positions whose packed data may have changed, including neighbors for the near* flags */
+    private IntSeq packChanged(Tile tile){
+        IntSeq changed = new IntSeq();
+
+        tile.getLinkedTiles(t -> {
+            int pos = t.array();
+            if(pos < tiles.length){
+                tiles[pos] = packTile(t);
+                changed.add(pos);
+
+                for(int i = 0; i < 4; i++){
+                    Tile other = t.nearby(i);
+                    if(other != null) changed.add(other.array());
+                }
             }
         });
+
+        return changed;
+    }
+
+    private static boolean sameTargets(IntSeq a, IntSeq b){
+        if(a.size != b.size) return false;
+        for(int i = 0; i < a.size; i++){
+            if(a.items[i] != b.items[i]) return false;
+        }
+        return true;
     }
 
     /** Thread implementation. */
@@ -255,16 +367,10 @@ public class Pathfinder implements Runnable{
                 if(state.isPlaying()){
                     queue.run();
 
-                    //each update time (not total!) no longer than maxUpdate
-                    for(Flowfield data : threadList){
-
-                        //if it's dirty and there is nothing to update, begin updating once more
-                        if(data.dirty && data.frontier.size == 0){
-                            updateTargets(data);
-                            data.dirty = false;
-                        }
-
-                        updateFrontier(data, maxUpdate);
+                    try{
+                        updateFields();
+                    }catch(InterruptedException e){
+                        return;
                     }
                 }
 
@@ -280,6 +386,73 @@ public class Pathfinder implements Runnable{
         }
     }
 
+    /**
+     * Updates every flow field for no longer than maxUpdate each (not total!).
+     * Fields never share mutable state, so they are spread across the worker pool. Pathfinding thread only.
+     */
+    private void updateFields() throws InterruptedException{
+        int size = threadList.size;
+        if(size == 0) return;
+
+        if(size == 1 || Runtime.getRuntime().availableProcessors() <= 2){
+            for(int i = 0; i < size; i++){
+                updateField(threadList.get(i));
+            }
+            return;
+        }
+
+        if(workers == null){
+            workers = Executors.newFixedThreadPool(Mathf.clamp(Runtime.getRuntime().availableProcessors() - 2, 1, 4), r -> {
+                Thread thread = new Thread(r, "PathfinderWorker");
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        fieldFutures.clear();
+        for(int i = 1; i < size; i++){
+            Flowfield data = threadList.get(i);
+            fieldFutures.add(workers.submit(() -> updateField(data)));
+        }
+
+        try{
+            //this thread works on a field too, instead of idling
+            updateField(threadList.first());
+        }finally{
+            awaitFields();
+        }
+    }
+
+    /** Waits for every worker to finish its field, even if some of them failed, so that no field is ever modified by two threads at once. */
+    private void awaitFields() throws InterruptedException{
+        for(int i = 0; i < fieldFutures.size; i++){
+            try{
+                fieldFutures.get(i).get();
+            }catch(ExecutionException e){
+                Log.err(e.getCause());
+            }catch(InterruptedException e){
+                //the thread is being stopped, and its fields are discarded along with it
+                for(var future : fieldFutures){
+                    future.cancel(true);
+                }
+                fieldFutures.clear();
+                throw e;
+            }
+        }
+        fieldFutures.clear();
+    }
+
+    private void updateField(Flowfield data){
+        //if it's dirty and there is nothing to update, begin updating once more
+        if(data.dirty && data.frontier.size == 0){
+            updateTargets(data);
+            data.dirty = false;
+        }
+
+        updateFrontier(data, maxUpdate);
+    }
+
     public Flowfield getField(Team team, int costType, int fieldType){
         if(cache[team.id][costType][fieldType] == null){
             Flowfield field = fieldTypes.get(fieldType).get();
@@ -366,6 +539,141 @@ public class Pathfinder implements Runnable{
         }
     }
 
+    /**
+     * Repairs a complete flow field after the specified tiles have changed.
+     * Only tiles whose weights were derived from a tile that became more expensive are invalidated; the frontier is then seeded from
+     * the border of that region, and tiles that became cheaper propagate their new weights outwards. Pathfinding thread only.
+     * @return false if the field can't be repaired and needs to be recalculated from scratch.
+     */
+    private boolean repairField(Flowfield path, IntSeq changed){
+        if(!incremental || !path.hasComplete || path.dirty || path.frontier.size > 0 || path.weights == null) return false;
+
+        int[] weights = path.weights, searches = path.searches;
+        int search = path.search, maxTiles = (int)(tiles.length * maxRepairFraction);
+
+        IntSet affected = repairSet;
+        IntSeq list = repairList, lower = repairLower;
+        IntQueue queue = repairQueue;
+        affected.clear();
+        list.clear();
+        lower.clear();
+        queue.clear();
+
+        //classify changed tiles by comparing their weight to the best weight their neighbors can currently provide
+        for(int i = 0; i < changed.size; i++){
+            int pos = changed.items[i];
+            if(isTarget(path, pos) || affected.contains(pos)) continue;
+
+            int current = searches[pos] == search ? weights[pos] : impassable;
+            int candidate = repairCandidate(path, pos, null);
+
+            if(current == impassable){
+                if(candidate != impassable) lower.add(pos);
+            }else if(candidate == impassable || candidate > current){
+                affected.add(pos);
+                list.add(pos);
+                queue.addLast(pos);
+            }else if(candidate < current){
+                lower.add(pos);
+            }
+        }
+
+        //raise: find every tile whose weight was derived from an invalidated tile
+        while(queue.size > 0){
+            int pos = queue.removeFirst();
+            int weight = weights[pos];
+            int x = pos % wwidth, y = pos / wwidth;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= wwidth || dy >= wheight) continue;
+
+                int other = dx + dy * wwidth;
+                if(affected.contains(other) || searches[other] != search || weights[other] == impassable) continue;
+
+                int otherCost = path.cost.getCost(path.team.id, tiles[other]);
+
+                //changed neighbors may have been classified using this tile's stale weight, so always invalidate them as well
+                if((otherCost != impassable && weights[other] == weight + otherCost) || changed.contains(other)){
+                    //region is too large, a full recalculation is cheaper; nothing has been modified yet
+                    if(list.size >= maxTiles) return false;
+
+                    affected.add(other);
+                    list.add(other);
+                    queue.addLast(other);
+                }
+            }
+        }
+
+        //invalidate the region; stale search IDs allow the frontier to overwrite it
+        for(int i = 0; i < list.size; i++){
+            int pos = list.items[i];
+            weights[pos] = impassable;
+            searches[pos] = search - 1;
+        }
+
+        //seed the frontier with valid tiles bordering the invalidated region
+        for(int i = 0; i < list.size; i++){
+            int pos = list.items[i];
+            int x = pos % wwidth, y = pos / wwidth;
+
+            for(Point2 point : Geometry.d4){
+                int dx = x + point.x, dy = y + point.y;
+                if(dx < 0 || dy < 0 || dx >= wwidth || dy >= wheight) continue;
+
+                int other = dx + dy * wwidth;
+                if(!affected.contains(other) && searches[other] == search && weights[other] != impassable){
+                    path.frontier.addFirst(other);
+                }
+            }
+        }
+
+        //lower: tiles that became cheaper take the best weight of their neighbors and propagate it
+        for(int i = 0; i < lower.size; i++){
+            int pos = lower.items[i];
+            if(affected.contains(pos)) continue;
+
+            int candidate = repairCandidate(path, pos, affected);
+            int current = searches[pos] == search ? weights[pos] : impassable;
+
+            if(candidate != impassable && (current == impassable || candidate < current)){
+                weights[pos] = candidate;
+                searches[pos] = search;
+                path.frontier.addFirst(pos);
+            }
+        }
+
+        return true;
+    }
+
+    /** @return the lowest weight a tile can get from its valid neighbors, or impassable. */
+    private int repairCandidate(Flowfield path, int pos, @Nullable IntSet exclude){
+        int cost = path.cost.getCost(path.team.id, tiles[pos]);
+        if(cost == impassable) return impassable;
+
+        int best = impassable, x = pos % wwidth, y = pos / wwidth;
+
+        for(Point2 point : Geometry.d4){
+            int dx = x + point.x, dy = y + point.y;
+            if(dx < 0 || dy < 0 || dx >= wwidth || dy >= wheight) continue;
+
+            int other = dx + dy * wwidth, weight = path.weights[other];
+            if(path.searches[other] != path.search || weight == impassable || (exclude != null && exclude.contains(other))) continue;
+
+            if(best == impassable || weight < best){
+                best = weight;
+            }
+        }
+
+        return best == impassable ? impassable : best + cost;
+    }
+
+    private boolean isTarget(Flowfield path, int pos){
+        synchronized(path.targets){
+            return path.targets.contains(pos);
+        }
+    }
+
     private void preloadPath(Flowfield path){
         path.updateTargetPositions();
         registerPath(path);
@@ -399,6 +707,38 @@ public class Pathfinder implements Runnable{
         }
     }
 
+    /**
+     * Calculates a complete flow field on the calling thread. The field is not cached, and is never updated by the pathfinding thread.
+     * Only reads the world and the packed tiles, so it may run on any thread while the world does not change.
+     * Used for benchmarking the frontier search, and for checking repairs.
+     */
+    public Flowfield calculateField(Team team, int costType, int fieldType){
+        Flowfield field = fieldTypes.get(fieldType).get();
+        field.team = team;
+        field.cost = costTypes.get(costType);
+        field.updateTargetPositions();
+        field.setup(tiles.length);
+        for(int i = 0; i < tiles.length; i++){
+            field.weights[i] = impassable;
+        }
+        //targets keep the current search ID, so they are never overwritten by their neighbors
+        updateTargets(field);
+        updateFrontier(field, -1);
+        return field;
+    }
+
+    /**
+     * Packs the tiles of a changed building, and repairs a field from {@link #calculateField} in place.
+     * The pathfinding thread must be stopped; used to check repairs against a recalculation.
+     * @return false if the field can't be repaired locally, in which case it is left unchanged
+     */
+    public boolean repairCalculatedField(Flowfield field, Tile tile){
+        if(!repairField(field, packChanged(tile))) return false;
+
+        updateFrontier(field, -1);
+        return true;
+    }
+
     /** Update the frontier for a path. Pathfinding thread only. */
     private void updateFrontier(Flowfield path, long nsToRun){
         boolean hadAny = path.frontier.size > 0;
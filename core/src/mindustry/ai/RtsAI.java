@@ -110,7 +110,7 @@ public class RtsAI{
         for(var unit : data.units){
             if(used.add(unit.id) && unit.isCommandable() && !unit.command().hasCommand() && !unit.command().isAttacking()){
                 squad.clear();
-                data.tree().intersect(unit.x - squadRadius/2f, unit.y - squadRadius/2f, squadRadius, squadRadius, squad);
+                data.unitIndex().intersect(unit.x - squadRadius/2f, unit.y - squadRadius/2f, squadRadius, squadRadius, squad);
 
                 squad.truncate(data.team.rules().rtsMaxSquad);
 
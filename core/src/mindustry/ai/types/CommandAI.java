@@ -124,7 +124,7 @@ public class CommandAI extends AIController{
                 local.clear();
                 //TODO experiment with 2/3/4
                 float size = unit.hitSize * 3f;
-                unit.team.data().tree().intersect(unit.x - size / 2f, unit.y - size/2f, size, size, local);
+                unit.team.data().unitIndex().intersect(unit.x - size / 2f, unit.y - size/2f, size, size, local);
                 local.remove(unit);
                 flocked = true;
             }
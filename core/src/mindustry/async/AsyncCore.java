@@ -1,6 +1,7 @@
 package mindustry.async;
 
 import arc.*;
+import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
 import mindustry.game.EventType.*;
@@ -15,10 +16,10 @@ public class AsyncCore{
         new PhysicsProcess()
     );
 
-    //futures to be awaited
-    private final Seq<Future<?>> futures = new Seq<>();
+    //tasks to be awaited; indices match processes, null if the process was skipped this frame
+    private final Seq<ForkJoinTask<?>> tasks = new Seq<>();
 
-    private ExecutorService executor;
+    private ForkJoinPool executor;
 
     public AsyncCore(){
         Events.on(WorldLoadEvent.class, e -> {
@@ -43,23 +44,44 @@ public class AsyncCore{
                 p.begin();
             }
 
-            futures.clear();
+            tasks.clear();
 
-            //init executor with size of potentially-modified process list
+            //work-stealing pool shared by all processes and their sub-tasks; one core is left for the main thread
             if(executor == null){
-                executor = Executors.newFixedThreadPool(processes.size, r -> {
-                    Thread thread = new Thread(r, "AsyncLogic-Thread");
+                executor = new ForkJoinPool(Math.max(Runtime.getRuntime().availableProcessors() - 1, 1), pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("AsyncLogic-Thread-" + thread.getPoolIndex());
                     thread.setDaemon(true);
-                    thread.setUncaughtExceptionHandler((t, e) -> Threads.throwAppException(e));
                     return thread;
-                });
+                }, (t, e) -> Threads.throwAppException(e), false);
             }
 
-            //submit all tasks
-            for(AsyncProcess p : processes){
-                if(p.shouldProcess()){
-                    futures.add(executor.submit(p::process));
+            //submit all tasks; processes without dependencies on each other run concurrently with the main loop
+            for(int i = 0; i < processes.size; i++){
+                AsyncProcess p = processes.get(i);
+
+                if(!p.shouldProcess()){
+                    tasks.add((ForkJoinTask<?>)null);
+                    continue;
+                }
+
+                Seq<ForkJoinTask<?>> deps = null;
+                for(int j = 0; j < i; j++){
+                    if(tasks.get(j) != null && p.dependsOn(processes.get(j))){
+                        if(deps == null) deps = new Seq<>();
+                        deps.add(tasks.get(j));
+                    }
                 }
+
+                Seq<ForkJoinTask<?>> fdeps = deps;
+                tasks.add(executor.submit(() -> {
+                    if(fdeps != null){
+                        for(var dep : fdeps){
+                            dep.join();
+                        }
+                    }
+                    p.process();
+                }));
             }
         }
     }
@@ -75,17 +97,38 @@ public class AsyncCore{
         }
     }
 
+    /**
+     * Splits work into {@code count} sub-tasks, runs them on the async pool and waits for all of them to finish.
+     * Should only be called from {@link AsyncProcess#process()}; sub-tasks must not write to shared state.
+     * */
+    public void parallel(int count, Intc task){
+        if(count <= 1 || executor == null || !ForkJoinTask.inForkJoinPool()){
+            for(int i = 0; i < count; i++){
+                task.get(i);
+            }
+            return;
+        }
+
+        ForkJoinTask<?>[] forks = new ForkJoinTask[count];
+        for(int i = 0; i < count; i++){
+            int index = i;
+            forks[i] = ForkJoinTask.adapt(() -> task.get(index));
+        }
+        ForkJoinTask.invokeAll(forks);
+    }
+
     private void complete(){
         //wait for all threads to stop processing
-        for(var future : futures){
+        for(var task : tasks){
+            if(task == null) continue;
             try{
-                future.get();
+                task.get();
             }catch(Throwable t){
                 throw new RuntimeException(t);
             }
         }
 
-        //clear processed futures
-        futures.clear();
+        //clear processed tasks
+        tasks.clear();
     }
 }
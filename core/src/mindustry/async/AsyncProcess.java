@@ -11,7 +11,7 @@ public interface AsyncProcess{
     /** Sync. Called at the beginning of the main loop. */
     default void begin(){}
 
-    /** Async. Called in a separate thread. */
+    /** Async. Called in a separate thread. Work may be split further with {@link AsyncCore#parallel}. */
     default void process(){}
 
     /** Sync. Called in the end of the main loop. */
@@ -20,4 +20,12 @@ public interface AsyncProcess{
     default boolean shouldProcess(){
         return true;
     }
+
+    /**
+     * @return whether this process reads or writes state that the other process writes, and must therefore wait for it to finish.
+     * Only processes that come earlier in {@link AsyncCore#processes} can be depended on.
+     * */
+    default boolean dependsOn(AsyncProcess other){
+        return false;
+    }
 }
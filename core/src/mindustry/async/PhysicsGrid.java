@@ -0,0 +1,237 @@
+package mindustry.async;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.async.PhysicsProcess.PhysicsWorld.*;
+import mindustry.squirrelModule.modules.hack.Hack;
+
+import java.util.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Uniform grid broadphase for a single physics layer.
+ * Body data is copied into flat arrays, and bodies are bucketed by cell into a hash table sized to the amount of bodies with a counting sort,
+ * so a rebuild is O(n) regardless of map size, and does not allocate once the arrays have grown.
+ * Cells fit the average body; larger bodies are listed in every cell they cover, instead of making every cell larger.
+ */
+public class PhysicsGrid{
+    private static final float minCellSize = tilesize * 2f;
+
+    private final float boundX, boundY, boundW, boundH;
+
+    private PhysicsBody[] bodies = new PhysicsBody[16];
+    private float[] xs = new float[16], ys = new float[16], radii = new float[16], masses = new float[16];
+    private boolean[] local = new boolean[16], collided = new boolean[16];
+    /** Range of cells to check for each body, inclusive. */
+    private int[] minX = new int[16], minY = new int[16], maxX = new int[16], maxY = new int[16];
+    /** Last body that checked each body; bodies listed in several cells are only checked once. */
+    private int[] checked = new int[16];
+
+    /** Cell and body of each entry, unsorted. Bodies have an entry for every cell they are listed in. */
+    private int[] entryCell = new int[16], entryBody = new int[16];
+    /** Cell and body of each entry, sorted by hash bucket. */
+    private int[] sortedCell = new int[16], sortedBody = new int[16];
+    /** Start offset of each bucket in the sorted entries; the bucket ends at the start of the next one. */
+    private int[] bucketStart = new int[17];
+
+    private int size, entries, gridW, gridH, bucketShift;
+    private float cellSize;
+
+    public PhysicsGrid(Rect bounds){
+        boundX = bounds.x;
+        boundY = bounds.y;
+        boundW = bounds.width;
+        boundH = bounds.height;
+    }
+
+    /** Resolves collisions between the specified bodies, writing the new positions back into them. */
+    public void update(Seq<PhysicsBody> input, float scl){
+        rebuild(input);
+
+        if(!Hack.noHitbox){
+            resolve(scl);
+        }
+
+        var items = bodies;
+        for(int i = 0; i < size; i++){
+            PhysicsBody body = items[i];
+            body.x = xs[i];
+            body.y = ys[i];
+            body.collided = collided[i];
+            //don't keep references to removed bodies around
+            items[i] = null;
+        }
+    }
+
+    private void rebuild(Seq<PhysicsBody> input){
+        size = input.size;
+        ensureCapacity(size);
+
+        var inputItems = input.items;
+        float totalRadius = 0f;
+
+        for(int i = 0; i < size; i++){
+            PhysicsBody body = inputItems[i];
+            bodies[i] = body;
+            xs[i] = body.x;
+            ys[i] = body.y;
+            radii[i] = body.radius;
+            masses[i] = body.mass;
+            local[i] = body.local;
+            collided[i] = false;
+            checked[i] = -1;
+            totalRadius += body.radius;
+        }
+
+        cellSize = Math.max(minCellSize, size == 0 ? 0f : totalRadius / size * 2f);
+        gridW = Math.max(Mathf.ceil(boundW / cellSize), 1);
+        gridH = Math.max(Mathf.ceil(boundH / cellSize), 1);
+
+        entries = 0;
+        for(int i = 0; i < size; i++){
+            if(radii[i] * 2f <= cellSize){
+                //bodies that fit a cell are listed once, and can only touch bodies in neighboring cells
+                int cx = cellX(xs[i]), cy = cellY(ys[i]);
+                addEntry(cx + cy * gridW, i);
+                minX[i] = Math.max(cx - 1, 0);
+                minY[i] = Math.max(cy - 1, 0);
+                maxX[i] = Math.min(cx + 1, gridW - 1);
+                maxY[i] = Math.min(cy + 1, gridH - 1);
+            }else{
+                //larger bodies are listed in every cell their bounds cover
+                int x1 = cellX(xs[i] - radii[i]), y1 = cellY(ys[i] - radii[i]), x2 = cellX(xs[i] + radii[i]), y2 = cellY(ys[i] + radii[i]);
+                for(int cy = y1; cy <= y2; cy++){
+                    for(int cx = x1; cx <= x2; cx++){
+                        addEntry(cx + cy * gridW, i);
+                    }
+                }
+                minX[i] = Math.max(x1 - 1, 0);
+                minY[i] = Math.max(y1 - 1, 0);
+                maxX[i] = Math.min(x2 + 1, gridW - 1);
+                maxY[i] = Math.min(y2 + 1, gridH - 1);
+            }
+        }
+
+        int buckets = Mathf.nextPowerOfTwo(Math.max(entries * 2, 16));
+        bucketShift = 32 - Integer.numberOfTrailingZeros(buckets);
+        if(bucketStart.length < buckets + 1){
+            bucketStart = new int[buckets + 1];
+        }else{
+            Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        }
+
+        //count entries per bucket
+        for(int i = 0; i < entries; i++){
+            bucketStart[bucket(entryCell[i]) + 1] ++;
+        }
+
+        //prefix sum to get bucket offsets
+        for(int b = 0; b < buckets; b++){
+            bucketStart[b + 1] += bucketStart[b];
+        }
+
+        //scatter; this advances each offset to the start of the next bucket
+        for(int i = 0; i < entries; i++){
+            int index = bucketStart[bucket(entryCell[i])] ++;
+            sortedCell[index] = entryCell[i];
+            sortedBody[index] = entryBody[i];
+        }
+
+        //shift offsets back
+        for(int b = buckets; b > 0; b--){
+            bucketStart[b] = bucketStart[b - 1];
+        }
+        bucketStart[0] = 0;
+    }
+
+    private void resolve(float scl){
+        for(int i = 0; i < size; i++){
+            //for clients, the only body that collides is the local one; all other physics simulations are handled by the server.
+            if(!local[i]) continue;
+
+            for(int ny = minY[i]; ny <= maxY[i]; ny++){
+                for(int nx = minX[i]; nx <= maxX[i]; nx++){
+                    int cell = nx + ny * gridW, bucket = bucket(cell);
+
+                    for(int k = bucketStart[bucket], end = bucketStart[bucket + 1]; k < end; k++){
+                        //buckets are shared by cells with the same hash
+                        if(sortedCell[k] != cell) continue;
+
+                        int j = sortedBody[k];
+
+                        if(j == i || collided[j] || checked[j] == i) continue;
+                        checked[j] = i;
+
+                        float dx = xs[i] - xs[j], dy = ys[i] - ys[j];
+                        float rs = radii[i] + radii[j];
+                        float dst = Mathf.sqrt(dx * dx + dy * dy);
+
+                        if(dst < rs && dst > 0f){
+                            float len = (rs - dst) / dst;
+                            float vx = dx * len, vy = dy * len;
+                            float ms = masses[i] + masses[j];
+                            float m1 = masses[j] / ms, m2 = masses[i] / ms;
+
+                            //first body is always local due to guard check above
+                            xs[i] += vx * m1 / scl;
+                            ys[i] += vy * m1 / scl;
+
+                            if(local[j]){
+                                xs[j] -= vx * m2 / scl;
+                                ys[j] -= vy * m2 / scl;
+                            }
+                        }
+                    }
+                }
+            }
+
+            collided[i] = true;
+        }
+    }
+
+    private int cellX(float x){
+        return Mathf.clamp((int)((x - boundX) / cellSize), 0, gridW - 1);
+    }
+
+    private int cellY(float y){
+        return Mathf.clamp((int)((y - boundY) / cellSize), 0, gridH - 1);
+    }
+
+    private int bucket(int cell){
+        return (cell * 0x9E3779B9) >>> bucketShift;
+    }
+
+    private void addEntry(int cell, int body){
+        if(entries == entryCell.length){
+            int cap = entries * 7 / 4 + 1;
+            entryCell = Arrays.copyOf(entryCell, cap);
+            entryBody = Arrays.copyOf(entryBody, cap);
+            sortedCell = new int[cap];
+            sortedBody = new int[cap];
+        }
+
+        entryCell[entries] = cell;
+        entryBody[entries] = body;
+        entries ++;
+    }
+
+    private void ensureCapacity(int amount){
+        if(xs.length >= amount) return;
+
+        int cap = Math.max(amount, xs.length * 7 / 4);
+        bodies = new PhysicsBody[cap];
+        xs = new float[cap];
+        ys = new float[cap];
+        radii = new float[cap];
+        masses = new float[cap];
+        local = new boolean[cap];
+        collided = new boolean[cap];
+        minX = new int[cap];
+        minY = new int[cap];
+        maxX = new int[cap];
+        maxY = new int[cap];
+        checked = new int[cap];
+    }
+}
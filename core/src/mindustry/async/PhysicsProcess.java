@@ -26,6 +26,7 @@ public class PhysicsProcess implements AsyncProcess{
     public void begin(){
         if(physics == null) return;
         boolean local = !Vars.net.client();
+        physics.useGrid = Vars.state.rules.gridPhysics;
 
         //remove stale entities
         refs.removeAll(ref -> {
@@ -79,7 +80,9 @@ public class PhysicsProcess implements AsyncProcess{
             ref.body.y = ref.y;
         }
 
-        physics.update();
+        //layers never interact, so each one is simulated as a separate sub-task
+        physics.prepare();
+        Vars.asyncCore.parallel(layers, physics::updateLayer);
     }
 
     @Override
@@ -126,15 +129,14 @@ public class PhysicsProcess implements AsyncProcess{
         //how much to soften movement by
         private static final float scl = 1.25f;
 
-        private final QuadTree<PhysicsBody>[] trees = new QuadTree[layers];
+        private final PhysicsLayer[] layerData = new PhysicsLayer[layers];
+        /** If true, the spatial hash broadphase is used instead of quadtrees. */
+        public boolean useGrid;
         private final Seq<PhysicsBody> bodies = new Seq<>(false, 16, PhysicsBody.class);
-        private final Seq<PhysicsBody> seq = new Seq<>(PhysicsBody.class);
-        private final Rect rect = new Rect();
-        private final Vec2 vec = new Vec2();
 
         public PhysicsWorld(Rect bounds){
             for(int i = 0; i < layers; i++){
-                trees[i] = new QuadTree<>(new Rect(bounds));
+                layerData[i] = new PhysicsLayer(bounds);
             }
         }
 
@@ -147,8 +149,17 @@ public class PhysicsProcess implements AsyncProcess{
         }
 
         public void update(){
+            prepare();
+
+            for(int i = 0; i < layers; i++){
+                updateLayer(i);
+            }
+        }
+
+        /** Sorts bodies into their layers. Must be called before {@link #updateLayer(int)}. */
+        public void prepare(){
             for(int i = 0; i < layers; i++){
-                trees[i].clear();
+                layerData[i].bodies.size = 0;
             }
 
             var bodyItems = bodies.items;
@@ -157,7 +168,31 @@ public class PhysicsProcess implements AsyncProcess{
             for(int i = 0; i < bodySize; i++){
                 PhysicsBody body = bodyItems[i];
                 body.collided = false;
-                trees[body.layer].insert(body);
+                layerData[body.layer].bodies.add(body);
+            }
+        }
+
+        /** Resolves collisions in a single layer. Different layers may be updated concurrently. */
+        public void updateLayer(int layer){
+            PhysicsLayer data = layerData[layer];
+
+            if(useGrid){
+                data.grid.update(data.bodies, scl);
+                return;
+            }
+
+            QuadTree<PhysicsBody> tree = data.tree;
+            Seq<PhysicsBody> seq = data.seq;
+            Rect rect = data.rect;
+            Vec2 vec = data.vec;
+
+            tree.clear();
+
+            var bodyItems = data.bodies.items;
+            int bodySize = data.bodies.size;
+
+            for(int i = 0; i < bodySize; i++){
+                tree.insert(bodyItems[i]);
             }
 
             for(int i = 0; i < bodySize; i++){
@@ -169,7 +204,7 @@ public class PhysicsProcess implements AsyncProcess{
                 body.hitbox(rect);
 
                 seq.size = 0;
-                trees[body.layer].intersect(rect, seq);
+                tree.intersect(rect, seq);
                 int size = seq.size;
                 var items = seq.items;
 
@@ -200,6 +235,21 @@ public class PhysicsProcess implements AsyncProcess{
             }
         }
 
+        /** Per-layer state, so that layers do not share temporary objects across threads. */
+        private static class PhysicsLayer{
+            final QuadTree<PhysicsBody> tree;
+            final PhysicsGrid grid;
+            final Seq<PhysicsBody> bodies = new Seq<>(false, 16, PhysicsBody.class);
+            final Seq<PhysicsBody> seq = new Seq<>(PhysicsBody.class);
+            final Rect rect = new Rect();
+            final Vec2 vec = new Vec2();
+
+            PhysicsLayer(Rect bounds){
+                tree = new QuadTree<>(new Rect(bounds));
+                grid = new PhysicsGrid(bounds);
+            }
+        }
+
         public static class PhysicsBody implements QuadTreeObject{
             public float x, y, radius, mass;
             public int layer = 0;
@@ -546,6 +546,9 @@ public class Control implements ApplicationListener, Loadable{
             }
         }
 
+        //the writer thread is a daemon, so saves started earlier (e.g. by saving and quitting to the menu) must finish first
+        SaveIO.awaitSaves();
+
         for(Music music : assets.getAll(Music.class, new Seq<>())){
             music.stop();
         }
@@ -422,14 +422,18 @@ public class Logic implements ApplicationListener{
             }
 
             if(!state.isPaused()){
+                long tick = profiler.begin();
                 float delta = Core.graphics.getDeltaTime();
                 state.tick += Float.isNaN(delta) || Float.isInfinite(delta) ? 0f : delta * 60f;
                 state.updateId ++;
+                long time = profiler.begin();
                 state.teams.updateTeamStats();
                 MapPreviewLoader.checkPreviews();
+                time = profiler.end(TickProfiler.teamStats, time);
 
                 if(state.rules.fog){
                     fogControl.update();
+                    time = profiler.end(TickProfiler.fog, time);
                 }
 
                 if(state.isCampaign()){
@@ -441,33 +445,45 @@ public class Logic implements ApplicationListener{
                 }
                 Time.update();
 
+                if(net.recorder != null){
+                    net.recorder.tick(Time.delta);
+                }
+
                 logicVars.update();
 
                 //weather is serverside
                 if(!net.client() && !state.isEditor()){
+                    time = profiler.begin();
                     updateWeather();
+                    time = profiler.end(TickProfiler.weather, time);
 
                     for(TeamData data : state.teams.getActive()){
                         //does not work on PvP so built-in attack maps can have it on by default without issues
                         if(data.team.rules().buildAi && !state.rules.pvp){
                             if(data.buildAi == null) data.buildAi = new BaseBuilderAI(data);
                             data.buildAi.update();
+                            time = profiler.end(TickProfiler.baseAi, time);
                         }
 
                         if(data.team.rules().rtsAi){
                             if(data.rtsAi == null) data.rtsAi = new RtsAI(data);
                             data.rtsAi.update();
+                            time = profiler.end(TickProfiler.rtsAi, time);
                         }
                     }
                 }
 
                 if(!state.isEditor()){
+                    time = profiler.begin();
                     state.rules.objectives.update();
                     if(state.rules.objectives.checkChanged() && net.server()){
                         Call.setObjectives(state.rules.objectives);
                     }
+                    profiler.end(TickProfiler.objectives, time);
                 }
 
+                time = profiler.begin();
+
                 if(state.rules.waves && state.rules.waveTimer && !state.gameOver){
                     if(!isWaitingWave()){
                         state.wavetime = Math.max(state.wavetime - Time.delta, 0);
@@ -482,8 +498,14 @@ public class Logic implements ApplicationListener{
                 state.envAttrs.clear();
                 state.envAttrs.add(state.rules.attributes);
                 Groups.weather.each(w -> state.envAttrs.add(w.weather.attrs, w.opacity));
+                time = profiler.end(TickProfiler.waves, time);
 
                 Groups.update();
+                time = profiler.end(TickProfiler.entities, time);
+
+                logicScheduler.update();
+                profiler.end(TickProfiler.logicScheduler, time);
+                profiler.end(TickProfiler.logic, tick);
             }
 
             if(runStateCheck){
@@ -52,6 +52,10 @@ public class NetClient implements ApplicationListener{
     private float timeoutTime = 0f;
     /** Last sent client snapshot ID. */
     private int lastSent;
+    /** Smoothed time between state snapshots from the server, in milliseconds. */
+    private static long snapshotSpacing = 200;
+    /** Time the last state snapshot was received. */
+    private static long lastSnapshot;
 
     /** List of entities that were removed, and need not be added while syncing. */
     private IntSet removed = new IntSet();
@@ -425,6 +429,14 @@ public class NetClient implements ApplicationListener{
         Groups.player.removeByID(playerid);
     }
 
+    /**
+     * @return the longest time entities interpolate between two updates, in milliseconds.
+     * The server leaves out entities that have not changed, so the time since their last update can be much longer than the time between snapshots.
+     */
+    public static long maxUpdateSpacing(){
+        return snapshotSpacing;
+    }
+
     public static void readSyncEntity(DataInputStream input, Reads read) throws IOException{
         int id = input.readInt();
         byte typeID = input.readByte();
@@ -515,6 +527,12 @@ public class NetClient implements ApplicationListener{
     @Remote(variants = Variant.one, priority = PacketPriority.low, unreliable = true)
     public static void stateSnapshot(float waveTime, int wave, int enemies, boolean paused, boolean gameOver, int timeData, byte tps, long rand0, long rand1, byte[] coreData){
         try{
+            //one state snapshot is sent with every entity snapshot
+            if(lastSnapshot != 0){
+                snapshotSpacing = (snapshotSpacing * 3 + Math.max(Time.timeSinceMillis(lastSnapshot), 1)) / 4;
+            }
+            lastSnapshot = Time.millis();
+
             if(wave > state.wave){
                 state.wave = wave;
                 Events.fire(new WaveEvent());
@@ -608,6 +626,7 @@ public class NetClient implements ApplicationListener{
         quietReset = false;
         quiet = false;
         lastSent = 0;
+        lastSnapshot = 0;
 
         Groups.clear();
         ui.chatfrag.clearMessages();
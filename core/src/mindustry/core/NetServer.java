@@ -27,6 +27,7 @@ import mindustry.world.*;
 import java.io.*;
 import java.net.*;
 import java.nio.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import static arc.util.Log.*;
@@ -39,7 +40,10 @@ public class NetServer implements ApplicationListener{
     private static final float blockSyncTime = 60 * 6, healthSyncTime = 30;
     private static final FloatBuffer fbuffer = FloatBuffer.allocate(20);
     private static final Writes dataWrites = new Writes(null);
-    private static final IntSeq hiddenIds = new IntSeq();
+    /** Every how many snapshots entities outside of a player's area of interest are synced. */
+    private static final int farSnapshotInterval = 4;
+    /** Extra space around a player's view and around cores that counts as the area of interest. */
+    private static final float interestMargin = tilesize * 12f, coreInterestRadius = tilesize * 30f;
     private static final IntSeq healthSeq = new IntSeq(maxSnapshotSize / 4 + 1);
     private static final Vec2 vector = new Vec2();
     /** If a player goes away of their server-side coordinates by this distance, they get teleported back. */
@@ -115,6 +119,18 @@ public class NetServer implements ApplicationListener{
     private ReusableByteOutStream syncStream = new ReusableByteOutStream();
     /** Data stream for writing player sync data to. */
     private DataOutputStream dataStream = new DataOutputStream(syncStream);
+    /** Stream for writing a single building to, so that it can be compared to the baseline. */
+    private ReusableByteOutStream entityStream = new ReusableByteOutStream();
+    /** Data stream for writing a single building to. */
+    private DataOutputStream entityData = new DataOutputStream(entityStream);
+    /** Entity sync data shared by all player snapshots of one tick. */
+    private SnapshotCapture capture = new SnapshotCapture();
+    /** Per-player snapshot builders; reused every tick. */
+    private Seq<SnapshotEncoder> snapshotEncoders = new Seq<>();
+    private Seq<Future<?>> snapshotFutures = new Seq<>();
+    private Seq<Player> snapshotPlayers = new Seq<>();
+    /** Block state last sent to all players. */
+    private SnapshotBaseline blockBaseline = new SnapshotBaseline(Config.blockSnapshotRefresh);
     /** Packet handlers for custom types of messages. */
     private ObjectMap<String, Seq<Cons2<Player, String>>> customPacketHandlers = new ObjectMap<>();
 
@@ -888,14 +904,29 @@ public class NetServer implements ApplicationListener{
     public void writeBlockSnapshots() throws IOException{
         syncStream.reset();
 
+        boolean delta = Config.snapshotDelta.bool();
+        blockBaseline.begin();
+
         short sent = 0;
         for(Building entity : Groups.build){
             if(!entity.block.sync) continue;
-            sent++;
 
-            dataStream.writeInt(entity.pos());
-            dataStream.writeShort(entity.block.id);
-            entity.writeAll(Writes.get(dataStream));
+            if(delta){
+                entityStream.reset();
+                entity.writeAll(Writes.get(entityData));
+
+                if(!blockBaseline.changed(entity.pos(), entityStream.getBytes(), entityStream.size())) continue;
+
+                dataStream.writeInt(entity.pos());
+                dataStream.writeShort(entity.block.id);
+                dataStream.write(entityStream.getBytes(), 0, entityStream.size());
+            }else{
+                dataStream.writeInt(entity.pos());
+                dataStream.writeShort(entity.block.id);
+                entity.writeAll(Writes.get(dataStream));
+            }
+
+            sent++;
 
             if(syncStream.size() > maxSnapshotSize){
                 dataStream.close();
@@ -912,6 +943,68 @@ public class NetServer implements ApplicationListener{
     }
 
     public void writeEntitySnapshot(Player player) throws IOException{
+        snapshotPlayers.clear();
+        snapshotPlayers.add(player);
+        writeEntitySnapshots(snapshotPlayers);
+    }
+
+    /**
+     * Writes entity snapshots for several players at once.
+     * Sync data of every entity is captured once on the main thread, then each player's snapshot is assembled from it in parallel.
+     */
+    public void writeEntitySnapshots(Seq<Player> players) throws IOException{
+        if(players.isEmpty()) return;
+
+        for(Player player : players){
+            writeStateSnapshot(player);
+        }
+
+        capture.capture();
+
+        while(snapshotEncoders.size < players.size){
+            snapshotEncoders.add(new SnapshotEncoder());
+        }
+
+        boolean delta = Config.snapshotDelta.bool(), interest = Config.snapshotInterest.bool();
+
+        for(int i = 0; i < players.size; i++){
+            snapshotEncoders.get(i).select(players.get(i), interest);
+        }
+
+        //encoding only reads the capture, so it can be spread across threads; the main thread waits for it
+        if(players.size > 1 && Config.snapshotThreads.bool()){
+            snapshotFutures.clear();
+            for(int i = 0; i < players.size; i++){
+                SnapshotEncoder encoder = snapshotEncoders.get(i);
+                SnapshotBaseline baseline = players.get(i).con.entityBaseline;
+                snapshotFutures.add(mainExecutor.submit(() -> encoder.encode(capture, baseline, delta)));
+            }
+
+            //every encoder must be done before the capture is written again, even if one of them failed
+            for(int i = 0; i < snapshotFutures.size; i++){
+                try{
+                    snapshotFutures.get(i).get();
+                }catch(InterruptedException | ExecutionException e){
+                    //this player misses a snapshot; everyone else still gets theirs
+                    snapshotEncoders.get(i).fail();
+                    err("Failed to write the entity snapshot of @.", players.get(i).plainName());
+                    err(e instanceof ExecutionException ? e.getCause() : e);
+                }
+            }
+            snapshotFutures.clear();
+        }else{
+            for(int i = 0; i < players.size; i++){
+                snapshotEncoders.get(i).encode(capture, players.get(i).con.entityBaseline, delta);
+            }
+        }
+
+        //packets are always sent from the main thread
+        for(int i = 0; i < players.size; i++){
+            snapshotEncoders.get(i).send(players.get(i));
+        }
+    }
+
+    private void writeStateSnapshot(Player player) throws IOException{
         byte tps = (byte)Math.min(Core.graphics.getFramesPerSecond(), 255);
         syncStream.reset();
         int activeTeams = (byte)state.teams.present.count(t -> t.cores.size > 0);
@@ -932,45 +1025,214 @@ public class NetServer implements ApplicationListener{
         //write basic state data.
         Call.stateSnapshot(player.con, state.wavetime, state.wave, state.enemies, state.isPaused(), state.gameOver,
         universe.seconds(), tps, GlobalVars.rand.seed0, GlobalVars.rand.seed1, syncStream.toByteArray());
+    }
 
-        syncStream.reset();
+    /** Sync data of every entity, written once per snapshot and shared by all players. Only written on the main thread. */
+    static class SnapshotCapture{
+        final ReusableByteOutStream bytes = new ReusableByteOutStream();
+        final DataOutputStream data = new DataOutputStream(bytes);
+        /** entity ID -> index in the arrays below */
+        final IntIntMap indices = new IntIntMap();
+        int[] ids = new int[64], offsets = new int[64], lengths = new int[64];
+        byte[] types = new byte[64];
+        int size;
+
+        void capture() throws IOException{
+            bytes.reset();
+            indices.clear();
+            size = 0;
+
+            for(Syncc entity : Groups.sync){
+                if(size >= offsets.length){
+                    int[] newIds = new int[size * 2], newOffsets = new int[size * 2], newLengths = new int[size * 2];
+                    byte[] newTypes = new byte[size * 2];
+                    System.arraycopy(ids, 0, newIds, 0, size);
+                    System.arraycopy(offsets, 0, newOffsets, 0, size);
+                    System.arraycopy(lengths, 0, newLengths, 0, size);
+                    System.arraycopy(types, 0, newTypes, 0, size);
+                    ids = newIds;
+                    offsets = newOffsets;
+                    lengths = newLengths;
+                    types = newTypes;
+                }
 
-        hiddenIds.clear();
-        int sent = 0;
+                int start = bytes.size();
+                entity.writeSync(Writes.get(data));
+
+                ids[size] = entity.id();
+                offsets[size] = start;
+                lengths[size] = bytes.size() - start;
+                types[size] = (byte)(entity.classId() & 0xFF);
+                indices.put(entity.id(), size);
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Assembles the entity snapshot of one player from a {@link SnapshotCapture}.
+     * Entities are selected on the main thread; encoding only reads the capture and the encoder's own buffers, so several encoders can run at once.
+     * Packets are serialized and compressed while encoding, so the main thread only has to hand them to the connection.
+     */
+    static class SnapshotEncoder{
+        final ReusableByteOutStream stream = new ReusableByteOutStream();
+        final DataOutputStream data = new DataOutputStream(stream);
+        /** IDs of entities selected for the current snapshot. */
+        final IntSet ids = new IntSet();
+        final IntSeq selected = new IntSeq(), hidden = new IntSeq();
+        /** Encoded packets, see {@link Net#encode(Packet)}. */
+        final Seq<Object> packets = new Seq<>();
+
+        Player player;
+        SnapshotBaseline baseline;
+        int sent;
+
+        /** Picks the entities to sync to a player. Main thread only, as this queries entity state and unit trees. */
+        void select(Player player, boolean interest){
+            this.player = player;
+
+            ids.clear();
+            selected.clear();
+            hidden.clear();
+
+            //entities outside of the area of interest are only synced every few snapshots; each player has a different phase
+            if(!interest || player.con.snapshotsSent % farSnapshotInterval == 0){
+                for(Syncc entity : Groups.sync){
+                    add(entity);
+                }
+            }else{
+                var con = player.con;
+
+                //nearby units are found with the unit tree
+                Groups.unit.intersect(
+                    con.viewX - con.viewWidth / 2f - interestMargin, con.viewY - con.viewHeight / 2f - interestMargin,
+                    con.viewWidth + interestMargin * 2f, con.viewHeight + interestMargin * 2f,
+                    this::add
+                );
+
+                if(!player.dead()){
+                    Groups.unit.intersect(player.x - interestMargin, player.y - interestMargin, interestMargin * 2f, interestMargin * 2f, this::add);
+                }
+
+                for(var core : player.team().cores()){
+                    Groups.unit.intersect(core.x - coreInterestRadius, core.y - coreInterestRadius, coreInterestRadius * 2f, coreInterestRadius * 2f, this::add);
+                }
+
+                //everything else is synced as usual
+                for(Syncc entity : Groups.sync){
+                    if(!(entity instanceof Unitc)){
+                        add(entity);
+                    }
+                }
+            }
+        }
+
+        void add(Syncc entity){
+            //areas of interest can overlap
+            if(!ids.add(entity.id())) return;
 
-        for(Syncc entity : Groups.sync){
             //TODO write to special list
             if(entity.isSyncHidden(player)){
-                hiddenIds.add(entity.id());
-                continue;
+                hidden.add(entity.id());
+            }else{
+                selected.add(entity.id());
             }
+        }
 
-            //write all entities now
-            dataStream.writeInt(entity.id()); //write id
-            dataStream.writeByte(entity.classId() & 0xFF); //write type ID
-            entity.writeSync(Writes.get(dataStream)); //write entity
+        /** Writes the selected entities into packets. May run on any thread. */
+        void encode(SnapshotCapture capture, SnapshotBaseline baseline, boolean delta){
+            this.baseline = baseline;
+            stream.reset();
+            packets.clear();
+            sent = 0;
 
-            sent++;
+            baseline.begin();
 
-            if(syncStream.size() > maxSnapshotSize){
-                dataStream.close();
-                Call.entitySnapshot(player.con, (short)sent, syncStream.toByteArray());
-                sent = 0;
-                syncStream.reset();
+            if(delta){
+                //clients remove hidden entities, so they must be sent in full once they are visible again
+                for(int i = 0; i < hidden.size; i++){
+                    baseline.forget(hidden.items[i]);
+                }
+
+                //entities left out by interest filtering may change without being compared
+                for(int i = 0; i < capture.size; i++){
+                    if(!ids.contains(capture.ids[i])){
+                        baseline.forget(capture.ids[i]);
+                    }
+                }
+            }
+
+            byte[] bytes = capture.bytes.getBytes();
+
+            for(int i = 0; i < selected.size; i++){
+                int id = selected.items[i];
+                int index = capture.indices.get(id, -1);
+                //entities added after the capture are synced next time
+                if(index == -1) continue;
+
+                int offset = capture.offsets[index], length = capture.lengths[index];
+
+                //skip entities that have not changed since they were last sent
+                if(delta && !baseline.changed(id, bytes, offset, length)) continue;
+
+                try{
+                    data.writeInt(id); //write id
+                    data.writeByte(capture.types[index]); //write type ID
+                    data.write(bytes, offset, length); //write entity
+                }catch(IOException e){
+                    throw new RuntimeException(e);
+                }
+
+                sent++;
+
+                if(stream.size() > maxSnapshotSize){
+                    flush();
+                }
             }
+
+            flush();
         }
 
-        if(sent > 0){
-            dataStream.close();
+        void flush(){
+            if(sent > 0){
+                EntitySnapshotCallPacket packet = new EntitySnapshotCallPacket();
+                packet.amount = (short)sent;
+                packet.data = stream.toByteArray();
+                packets.add(net.encode(packet));
 
-            Call.entitySnapshot(player.con, (short)sent, syncStream.toByteArray());
+                sent = 0;
+                stream.reset();
+            }
         }
 
-        if(hiddenIds.size > 0){
-            Call.hiddenSnapshot(player.con, hiddenIds);
+        /** Drops a snapshot that could not be encoded. Its baseline may hold state that was never sent, so the next snapshot is sent in full. */
+        void fail(){
+            packets.clear();
+            hidden.clear();
+            if(baseline != null){
+                baseline.reset();
+            }
         }
 
-        player.con.snapshotsSent++;
+        /** Sends the assembled snapshot. Main thread only. */
+        void send(Player player){
+            if(net.server()){
+                for(int i = 0; i < packets.size; i++){
+                    player.con.send(packets.get(i), false);
+                }
+            }
+
+            if(hidden.size > 0){
+                Call.hiddenSnapshot(player.con, hidden);
+            }
+
+            player.con.snapshotsSent++;
+
+            //don't keep references around
+            packets.clear();
+            this.player = null;
+            this.baseline = null;
+        }
     }
 
     public String fixName(String name){
@@ -1024,7 +1286,9 @@ public class NetServer implements ApplicationListener{
 
     void sync(){
         try{
+            long time = profiler.begin();
             int interval = Config.snapshotInterval.num();
+            snapshotPlayers.clear();
             Groups.player.each(p -> !p.isLocal(), player -> {
                 if(player.con == null || !player.con.isConnected()){
                     onDisconnect(player, "disappeared");
@@ -1036,16 +1300,16 @@ public class NetServer implements ApplicationListener{
                 if(Time.timeSinceMillis(connection.syncTime) < interval || !connection.hasConnected) return;
 
                 connection.syncTime = Time.millis();
-
-                try{
-                    writeEntitySnapshot(player);
-                }catch(IOException e){
-                    e.printStackTrace();
-                }
+                snapshotPlayers.add(player);
             });
 
+            writeEntitySnapshots(snapshotPlayers);
+            snapshotPlayers.clear();
+            time = profiler.end(TickProfiler.entitySync, time);
+
             if(Groups.player.size() > 0 && Core.settings.getBool("blocksync") && timer.get(timerBlockSync, blockSyncTime)){
                 writeBlockSnapshots();
+                time = profiler.end(TickProfiler.blockSync, time);
             }
 
             if(Groups.player.size() > 0 && buildHealthChanged.size > 0 && timer.get(timerHealthSync, healthSyncTime)){
@@ -1074,6 +1338,7 @@ public class NetServer implements ApplicationListener{
                 }
 
                 buildHealthChanged.clear();
+                profiler.end(TickProfiler.healthSync, time);
             }
         }catch(IOException e){
             Log.err(e);
@@ -0,0 +1,125 @@
+package mindustry.core;
+
+import arc.util.*;
+import mindustry.world.*;
+
+import java.util.*;
+
+/**
+ * Measures the time spent in each phase of a game tick, and in the updates of each block type.
+ * Phases are timed as consecutive spans: {@link #end(int, long)} returns the start of the next span, so every phase costs a single clock read.
+ * Besides totals, the most recent spans of every phase are kept in a ring buffer for percentiles.
+ * Nothing is timed while disabled. Main thread only.
+ */
+public class TickProfiler{
+    public static final int
+        logic = 0,
+        teamStats = 1,
+        fog = 2,
+        weather = 3,
+        baseAi = 4,
+        rtsAi = 5,
+        objectives = 6,
+        waves = 7,
+        entities = 8,
+        logicScheduler = 9,
+        entitySync = 10,
+        blockSync = 11,
+        healthSync = 12;
+
+    public static final String[] names = {
+        "logic", "teamStats", "fog", "weather", "baseAi", "rtsAi", "objectives", "waves", "entities", "logicScheduler",
+        "entitySync", "blockSync", "healthSync"
+    };
+
+    /** Amount of recent spans kept for each phase. */
+    public static final int historySize = 600;
+
+    /** Whether spans are recorded. */
+    public boolean enabled;
+
+    private final long[] totals = new long[names.length], counts = new long[names.length], maxes = new long[names.length];
+    private final long[][] history = new long[names.length][historySize];
+    private final long[] sorted = new long[historySize];
+
+    /** Update time and count of each block type, by block ID. */
+    private long[] blockTotals = {}, blockCounts = {};
+
+    /** @return the start of a span, or 0 if disabled. */
+    public long begin(){
+        return enabled ? Time.nanos() : 0L;
+    }
+
+    /**
+     * Ends a span of a phase.
+     * @return the start of the next span
+     */
+    public long end(int phase, long start){
+        if(!enabled) return 0L;
+
+        long now = Time.nanos(), time = now - start;
+        history[phase][(int)(counts[phase] % historySize)] = time;
+        totals[phase] += time;
+        counts[phase] ++;
+        if(time > maxes[phase]) maxes[phase] = time;
+        return now;
+    }
+
+    /** Records the time taken by a single building update. */
+    public void block(Block block, long time){
+        if(block.id >= blockTotals.length){
+            int size = Math.max(block.id + 1, blockTotals.length * 2);
+            blockTotals = Arrays.copyOf(blockTotals, size);
+            blockCounts = Arrays.copyOf(blockCounts, size);
+        }
+
+        blockTotals[block.id] += time;
+        blockCounts[block.id] ++;
+    }
+
+    /** @return total nanoseconds spent in a phase since the last reset. */
+    public long total(int phase){
+        return totals[phase];
+    }
+
+    /** @return how many spans of a phase were recorded since the last reset. */
+    public long count(int phase){
+        return counts[phase];
+    }
+
+    /** @return the longest span of a phase since the last reset, in nanoseconds. */
+    public long max(int phase){
+        return maxes[phase];
+    }
+
+    /**
+     * @param fraction the percentile, from 0 to 1
+     * @return the span of a phase at this percentile, out of the last {@link #historySize} spans, in nanoseconds
+     */
+    public long percentile(int phase, float fraction){
+        int size = (int)Math.min(counts[phase], historySize);
+        if(size == 0) return 0L;
+
+        System.arraycopy(history[phase], 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        return sorted[Math.min((int)(fraction * size), size - 1)];
+    }
+
+    /** @return total nanoseconds spent updating buildings of this block since the last reset. */
+    public long blockTotal(Block block){
+        return block.id < blockTotals.length ? blockTotals[block.id] : 0L;
+    }
+
+    /** @return how many buildings of this block were updated since the last reset. */
+    public long blockCount(Block block){
+        return block.id < blockCounts.length ? blockCounts[block.id] : 0L;
+    }
+
+    public void reset(){
+        Arrays.fill(totals, 0L);
+        Arrays.fill(counts, 0L);
+        Arrays.fill(maxes, 0L);
+        Arrays.fill(blockTotals, 0L);
+        Arrays.fill(blockCounts, 0L);
+    }
+}
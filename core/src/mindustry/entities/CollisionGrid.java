@@ -0,0 +1,317 @@
+package mindustry.entities;
+
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.game.Teams.*;
+import mindustry.gen.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Broadphase for bullet-unit collisions.
+ * Unit hitboxes and swept bullet hitboxes are copied into flat arrays, units are bucketed into a uniform grid with a counting sort,
+ * and every bullet then gathers the enemy units that its swept hitbox overlaps. Gathering only reads these arrays, so it can be split across threads.
+ * Candidates of a bullet are always listed in unit order, regardless of how the work was split.
+ */
+public class CollisionGrid{
+    private static final float cellSize = tilesize * 8f;
+    /** Bullets per gathering task. */
+    private static final int chunkSize = 256;
+
+    /** Whether gathering may run on the main executor. */
+    public boolean parallel = true;
+
+    private final Rect rect = new Rect(), bounds = new Rect();
+
+    private Unit[] units = new Unit[16];
+    private float[] ux1 = new float[16], uy1 = new float[16], ux2 = new float[16], uy2 = new float[16];
+    private int[] uteam = new int[16], ucx = new int[16], ucy = new int[16];
+    private int unitCount;
+
+    private Bullet[] bullets = new Bullet[16];
+    private float[] bx1 = new float[16], by1 = new float[16], bx2 = new float[16], by2 = new float[16];
+    private int[] bteam = new int[16];
+    private int bulletCount, lastBulletId;
+
+    /** Unit indices sorted by cell; a unit covering several cells is listed in each of them. */
+    private int[] cellUnits = new int[16];
+    /** Start offset of each cell in {@link #cellUnits}; the cell ends at the start of the next one. */
+    private int[] cellStart = new int[2];
+    private int gridW, gridH;
+    private float originX, originY;
+
+    /** Candidate unit indices of every bullet; see {@link #candidateStart(int)}. */
+    private int[] candidates = new int[16];
+    private int[] candStart = new int[17];
+    private final Seq<IntSeq> chunkOut = new Seq<>();
+    private final ArrayList<Callable<Object>> tasks = new ArrayList<>();
+
+    /** Snapshots all bullets and the units of present teams, and gathers the collision candidates of every bullet. */
+    public void build(EntityGroup<Bullet> group, Seq<TeamData> present){
+        world.getQuadBounds(bounds);
+        snapshotUnits(present);
+        snapshotBullets(group);
+        bucket();
+        gather();
+    }
+
+    public int bulletCount(){
+        return bulletCount;
+    }
+
+    public Bullet bullet(int index){
+        return bullets[index];
+    }
+
+    public Unit unit(int index){
+        return units[index];
+    }
+
+    /** @return the highest bullet ID in the snapshot. Bullets with a higher ID were created afterwards. */
+    public int lastBulletId(){
+        return lastBulletId;
+    }
+
+    /** @return the start of the candidates of this bullet in {@link #candidates()}. */
+    public int candidateStart(int bullet){
+        return candStart[bullet];
+    }
+
+    /** @return the end (exclusive) of the candidates of this bullet in {@link #candidates()}. */
+    public int candidateEnd(int bullet){
+        return candStart[bullet + 1];
+    }
+
+    public int[] candidates(){
+        return candidates;
+    }
+
+    /** Drops entity references, so that removed entities are not kept alive until the next pass. */
+    public void clear(){
+        Arrays.fill(units, 0, unitCount, null);
+        Arrays.fill(bullets, 0, bulletCount, null);
+        unitCount = bulletCount = 0;
+    }
+
+    private void snapshotUnits(Seq<TeamData> present){
+        int total = 0;
+        for(int t = 0; t < present.size; t++){
+            total += present.items[t].units.size;
+        }
+        ensureUnits(total);
+
+        unitCount = 0;
+        for(int t = 0; t < present.size; t++){
+            TeamData data = present.items[t];
+            Seq<Unit> list = data.units;
+            for(int i = 0; i < list.size; i++){
+                Unit unit = list.items[i];
+                unit.hitbox(rect);
+
+                //unit quadtrees do not contain units outside their bounds
+                if(!bounds.overlaps(rect)) continue;
+
+                int n = unitCount++;
+                units[n] = unit;
+                ux1[n] = rect.x;
+                uy1[n] = rect.y;
+                ux2[n] = rect.x + rect.width;
+                uy2[n] = rect.y + rect.height;
+                uteam[n] = data.team.id;
+            }
+        }
+    }
+
+    private void snapshotBullets(EntityGroup<Bullet> group){
+        bulletCount = group.size();
+        ensureBullets(bulletCount);
+        lastBulletId = -1;
+
+        for(int i = 0; i < bulletCount; i++){
+            Bullet bullet = group.index(i);
+            bullets[i] = bullet;
+            bullet.hitbox(rect);
+
+            //the hitbox at the last position merged with the current one, as in EntityCollisions#updateCollision
+            float dx = bullet.lastX() - bullet.x, dy = bullet.lastY() - bullet.y;
+            bx1[i] = Math.min(rect.x, rect.x + dx);
+            by1[i] = Math.min(rect.y, rect.y + dy);
+            bx2[i] = Math.max(rect.x, rect.x + dx) + rect.width;
+            by2[i] = Math.max(rect.y, rect.y + dy) + rect.height;
+            bteam[i] = bullet.team.id;
+            lastBulletId = Math.max(lastBulletId, bullet.id);
+        }
+    }
+
+    private void bucket(){
+        originX = bounds.x;
+        originY = bounds.y;
+        gridW = Math.max((int)Math.ceil(bounds.width / cellSize), 1);
+        gridH = Math.max((int)Math.ceil(bounds.height / cellSize), 1);
+
+        int cells = gridW * gridH;
+        if(cellStart.length < cells + 1){
+            cellStart = new int[cells + 1];
+        }else{
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+
+        //count the entries of each cell, offset by one so that the prefix sum yields start indices
+        int entries = 0;
+        for(int i = 0; i < unitCount; i++){
+            int x1 = cellX(ux1[i]), y1 = cellY(uy1[i]), x2 = cellX(ux2[i]), y2 = cellY(uy2[i]);
+            ucx[i] = x1;
+            ucy[i] = y1;
+            for(int cy = y1; cy <= y2; cy++){
+                for(int cx = x1; cx <= x2; cx++){
+                    cellStart[cx + cy * gridW + 1]++;
+                    entries ++;
+                }
+            }
+        }
+
+        for(int i = 0; i < cells; i++){
+            cellStart[i + 1] += cellStart[i];
+        }
+
+        if(cellUnits.length < entries){
+            cellUnits = new int[entries];
+        }
+
+        //fill cells in unit order; the cell starts are shifted forward and restored afterwards
+        for(int i = 0; i < unitCount; i++){
+            int x2 = cellX(ux2[i]), y2 = cellY(uy2[i]);
+            for(int cy = ucy[i]; cy <= y2; cy++){
+                for(int cx = ucx[i]; cx <= x2; cx++){
+                    cellUnits[cellStart[cx + cy * gridW]++] = i;
+                }
+            }
+        }
+
+        for(int i = cells; i > 0; i--){
+            cellStart[i] = cellStart[i - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    private void gather(){
+        int chunks = (bulletCount + chunkSize - 1) / chunkSize;
+        while(chunkOut.size < chunks) chunkOut.add(new IntSeq());
+        if(candStart.length < bulletCount + 1) candStart = new int[bulletCount + 1];
+
+        if(parallel && chunks > 1){
+            tasks.clear();
+            for(int c = 0; c < chunks; c++){
+                int chunk = c;
+                tasks.add(Executors.callable(() -> gather(chunk)));
+            }
+
+            try{
+                for(var future : mainExecutor.invokeAll(tasks)){
+                    future.get();
+                }
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }catch(ExecutionException e){
+                throw new RuntimeException(e.getCause());
+            }
+        }else{
+            for(int c = 0; c < chunks; c++){
+                gather(c);
+            }
+        }
+
+        //concatenate the chunks; bullet offsets are relative to their chunk until now
+        int total = 0;
+        for(int c = 0; c < chunks; c++){
+            total += chunkOut.items[c].size;
+        }
+        if(candidates.length < total) candidates = new int[total];
+
+        int base = 0;
+        for(int c = 0; c < chunks; c++){
+            IntSeq out = chunkOut.items[c];
+            System.arraycopy(out.items, 0, candidates, base, out.size);
+            for(int b = c * chunkSize, end = Math.min(b + chunkSize, bulletCount); b < end; b++){
+                candStart[b] += base;
+            }
+            base += out.size;
+        }
+        candStart[bulletCount] = total;
+    }
+
+    private void gather(int chunk){
+        IntSeq out = chunkOut.items[chunk];
+        out.clear();
+
+        for(int b = chunk * chunkSize, end = Math.min(b + chunkSize, bulletCount); b < end; b++){
+            candStart[b] = out.size;
+
+            float x1 = bx1[b], y1 = by1[b], x2 = bx2[b], y2 = by2[b];
+            int team = bteam[b];
+            int cx1 = cellX(x1), cy1 = cellY(y1), cx2 = cellX(x2), cy2 = cellY(y2);
+
+            for(int cy = cy1; cy <= cy2; cy++){
+                for(int cx = cx1; cx <= cx2; cx++){
+                    int cell = cx + cy * gridW;
+                    for(int j = cellStart[cell], cend = cellStart[cell + 1]; j < cend; j++){
+                        int u = cellUnits[j];
+
+                        //units spanning several cells are only reported from the first cell shared with the bullet
+                        if(uteam[u] == team || Math.max(ucx[u], cx1) != cx || Math.max(ucy[u], cy1) != cy) continue;
+
+                        if(x1 < ux2[u] && x2 > ux1[u] && y1 < uy2[u] && y2 > uy1[u]){
+                            out.add(u);
+                        }
+                    }
+                }
+            }
+
+            //insertion sort; bullets rarely overlap more than a few units
+            int[] items = out.items;
+            for(int i = candStart[b] + 1; i < out.size; i++){
+                int value = items[i], j = i - 1;
+                while(j >= candStart[b] && items[j] > value){
+                    items[j + 1] = items[j];
+                    j--;
+                }
+                items[j + 1] = value;
+            }
+        }
+    }
+
+    private int cellX(float x){
+        return Math.min(Math.max((int)((x - originX) / cellSize), 0), gridW - 1);
+    }
+
+    private int cellY(float y){
+        return Math.min(Math.max((int)((y - originY) / cellSize), 0), gridH - 1);
+    }
+
+    private void ensureUnits(int size){
+        if(units.length >= size) return;
+        int cap = Math.max(size, units.length * 7 / 4);
+        units = Arrays.copyOf(units, cap);
+        ux1 = new float[cap];
+        uy1 = new float[cap];
+        ux2 = new float[cap];
+        uy2 = new float[cap];
+        uteam = new int[cap];
+        ucx = new int[cap];
+        ucy = new int[cap];
+    }
+
+    private void ensureBullets(int size){
+        if(bullets.length >= size) return;
+        int cap = Math.max(size, bullets.length * 7 / 4);
+        bullets = Arrays.copyOf(bullets, cap);
+        bx1 = new float[cap];
+        by1 = new float[cap];
+        bx2 = new float[cap];
+        by2 = new float[cap];
+        bteam = new int[cap];
+    }
+}
@@ -31,6 +31,10 @@ public class Damage{
     private static final Pool<Collided> collidePool = Pools.get(Collided.class, Collided::new);
     private static final Seq<Building> builds = new Seq<>();
     private static final FloatSeq distances = new FloatSeq();
+    private static final Pool<Explosion> explosionPool = Pools.get(Explosion.class, Explosion::new);
+    private static final IntMap<RayTemplate> rayTemplates = new IntMap<>();
+    private static Seq<Explosion> pendingExplosions = new Seq<>(Explosion.class), resolvingExplosions = new Seq<>(Explosion.class);
+    private static boolean explosionsPosted;
 
     private static Tile furthest;
     private static float maxDst = 0f;
@@ -530,79 +534,149 @@ public class Damage{
         tileDamage(team, x, y, baseRadius, damage, null);
     }
 
+    /**
+     * Queues an explosion that damages buildings with rays cast from its center.
+     * All explosions queued during a frame are resolved together at the start of the next one, in the order they were queued.
+     */
     public static void tileDamage(Team team, int x, int y, float baseRadius, float damage, @Nullable Bullet source){
-        Core.app.post(() -> {
-            var in = world.build(x, y);
-            //spawned inside a multiblock. this means that damage needs to be dealt directly.
-            //why? because otherwise the building would absorb everything in one cell, which means much less damage than a nearby explosion.
-            //this needs to be compensated
-            if(in != null && in.team != team && in.block.size > 1 && in.health > damage){
-                //deal the damage of an entire side, to be equivalent with maximum 'standard' damage
-                in.damage(team, damage * Math.min((in.block.size), baseRadius * 0.4f));
-                //no need to continue with the explosion
-                return;
+        pendingExplosions.add(explosionPool.obtain().set(team, x, y, baseRadius, damage, source));
+
+        if(!explosionsPosted){
+            explosionsPosted = true;
+            Core.app.post(Damage::resolveExplosions);
+        }
+    }
+
+    private static void resolveExplosions(){
+        explosionsPosted = false;
+
+        //explosions queued while resolving (e.g. from destroyed buildings) are resolved in the next frame
+        Seq<Explosion> batch = pendingExplosions;
+        pendingExplosions = resolvingExplosions;
+        resolvingExplosions = batch;
+
+        //the batch must be emptied even if damage throws, or it would be resolved again once swapped back
+        try{
+            for(int i = 0; i < batch.size; i++){
+                resolveExplosion(batch.items[i]);
             }
+        }finally{
+            explosionPool.freeAll(batch);
+            batch.clear();
+        }
+    }
 
-            //cap radius to prevent lag
-            float radius = Math.min(baseRadius, 100), rad2 = radius * radius;
-            int rays = Mathf.ceil(radius * 2 * Mathf.pi);
-            double spacing = Math.PI * 2.0 / rays;
-            damages.clear();
-
-            //raycast from each angle
-            for(int i = 0; i <= rays; i++){
-                float dealt = 0f;
-                int startX = x;
-                int startY = y;
-                int endX = x + (int)(Math.cos(spacing * i) * radius), endY = y + (int)(Math.sin(spacing * i) * radius);
-
-                int xDist = Math.abs(endX - startX);
-                int yDist = -Math.abs(endY - startY);
-                int xStep = (startX < endX ? +1 : -1);
-                int yStep = (startY < endY ? +1 : -1);
-                int error = xDist + yDist;
-
-                while(startX != endX || startY != endY){
-                    var build = world.build(startX, startY);
-                    if(build != null && build.team != team){
-                        //damage dealt at circle edge
-                        float edgeScale = 0.6f;
-                        float mult = (1f-(Mathf.dst2(startX, startY, x, y) / rad2) + edgeScale) / (1f + edgeScale);
-                        float next = damage * mult - dealt;
-                        //register damage dealt
-                        int p = Point2.pack(startX, startY);
-                        damages.put(p, Math.max(damages.get(p), next));
-                        //register as hit
-                        dealt += build.health;
-
-                        if(next - dealt <= 0){
-                            break;
-                        }
-                    }
+    private static void resolveExplosion(Explosion explosion){
+        Team team = explosion.team;
+        int x = explosion.x, y = explosion.y;
+        float damage = explosion.damage, baseRadius = explosion.radius;
+        Bullet source = explosion.source;
+
+        var in = world.build(x, y);
+        //spawned inside a multiblock. this means that damage needs to be dealt directly.
+        //why? because otherwise the building would absorb everything in one cell, which means much less damage than a nearby explosion.
+        //this needs to be compensated
+        if(in != null && in.team != team && in.block.size > 1 && in.health > damage){
+            //deal the damage of an entire side, to be equivalent with maximum 'standard' damage
+            in.damage(team, damage * Math.min((in.block.size), baseRadius * 0.4f));
+            //no need to continue with the explosion
+            return;
+        }
 
-                    if(2 * error - yDist > xDist - 2 * error){
-                        error += yDist;
-                        startX += xStep;
-                    }else{
-                        error += xDist;
-                        startY += yStep;
+        //cap radius to prevent lag
+        RayTemplate template = rayTemplate(Math.min(baseRadius, 100));
+        damages.clear();
+
+        //raycast from each angle
+        for(int i = 0; i < template.offsets.length; i++){
+            int[] offsets = template.offsets[i];
+            float[] mults = template.mults[i];
+            float dealt = 0f;
+
+            for(int j = 0; j < mults.length; j++){
+                int cx = x + offsets[j * 2], cy = y + offsets[j * 2 + 1];
+                var build = world.build(cx, cy);
+                if(build != null && build.team != team){
+                    float next = damage * mults[j] - dealt;
+                    //register damage dealt
+                    int p = Point2.pack(cx, cy);
+                    damages.put(p, Math.max(damages.get(p), next));
+                    //register as hit
+                    dealt += build.health;
+
+                    if(next - dealt <= 0){
+                        break;
                     }
                 }
             }
+        }
 
-            //apply damage
-            for(var e : damages){
-                int cx = Point2.x(e.key), cy = Point2.y(e.key);
-                var build = world.build(cx, cy);
-                if(build != null){
-                    if(source != null){
-                        build.damage(source, team, e.value);
-                    }else{
-                        build.damage(team, e.value);
-                    }
+        //apply damage
+        for(var e : damages){
+            int cx = Point2.x(e.key), cy = Point2.y(e.key);
+            var build = world.build(cx, cy);
+            if(build != null){
+                if(source != null){
+                    build.damage(source, team, e.value);
+                }else{
+                    build.damage(team, e.value);
                 }
             }
-        });
+        }
+    }
+
+    /** @return the rays of a tile explosion with this radius, relative to its center. Rays only depend on the radius, so they are cached. */
+    private static RayTemplate rayTemplate(float radius){
+        int key = Float.floatToIntBits(radius);
+        RayTemplate template = rayTemplates.get(key);
+        if(template != null) return template;
+
+        //radii come from bullet types, so there are usually only a few of them
+        if(rayTemplates.size >= 64) rayTemplates.clear();
+
+        float rad2 = radius * radius;
+        int rays = Mathf.ceil(radius * 2 * Mathf.pi);
+        double spacing = Math.PI * 2.0 / rays;
+        IntSeq offsets = new IntSeq();
+        FloatSeq mults = new FloatSeq();
+
+        template = new RayTemplate(rays + 1);
+
+        for(int i = 0; i <= rays; i++){
+            int startX = 0;
+            int startY = 0;
+            int endX = (int)(Math.cos(spacing * i) * radius), endY = (int)(Math.sin(spacing * i) * radius);
+
+            int xDist = Math.abs(endX - startX);
+            int yDist = -Math.abs(endY - startY);
+            int xStep = (startX < endX ? +1 : -1);
+            int yStep = (startY < endY ? +1 : -1);
+            int error = xDist + yDist;
+
+            offsets.clear();
+            mults.clear();
+
+            while(startX != endX || startY != endY){
+                //damage dealt at circle edge
+                float edgeScale = 0.6f;
+                offsets.add(startX, startY);
+                mults.add((1f-(Mathf.dst2(startX, startY, 0, 0) / rad2) + edgeScale) / (1f + edgeScale));
+
+                if(2 * error - yDist > xDist - 2 * error){
+                    error += yDist;
+                    startX += xStep;
+                }else{
+                    error += xDist;
+                    startY += yStep;
+                }
+            }
+
+            template.offsets[i] = offsets.toArray();
+            template.mults[i] = mults.toArray();
+        }
+
+        rayTemplates.put(key, template);
+        return template;
     }
 
     private static void completeDamage(Team team, float x, float y, float radius, float damage){
@@ -629,6 +703,41 @@ public class Damage{
         return Math.max(damage - armor, minArmorDamage * damage);
     }
 
+    private static class Explosion implements Pool.Poolable{
+        Team team;
+        int x, y;
+        float radius, damage;
+        @Nullable Bullet source;
+
+        Explosion set(Team team, int x, int y, float radius, float damage, @Nullable Bullet source){
+            this.team = team;
+            this.x = x;
+            this.y = y;
+            this.radius = radius;
+            this.damage = damage;
+            this.source = source;
+            return this;
+        }
+
+        @Override
+        public void reset(){
+            team = null;
+            source = null;
+        }
+    }
+
+    private static class RayTemplate{
+        /** Tile offsets visited by each ray, as x/y pairs. */
+        final int[][] offsets;
+        /** Damage multiplier at each visited tile. */
+        final float[][] mults;
+
+        RayTemplate(int rays){
+            offsets = new int[rays][];
+            mults = new float[rays][];
+        }
+    }
+
     public static class Collided implements Pool.Poolable{
         public float x, y;
         public Teamc target;
@@ -23,6 +23,13 @@ public class EntityCollisions{
     private Cons<Hitboxc> hitCons = this::updateCollision;
     private Cons<QuadTree> treeCons = tree -> tree.intersect(r2, arrOut);
 
+    /** If true, bullets are collided with units in one batched pass, instead of a tree query per bullet. */
+    public boolean batchBullets = true;
+    private final CollisionGrid bulletGrid = new CollisionGrid();
+    private final Cons<Bullet> lateBulletCons = b -> {
+        if(b.id > bulletGrid.lastBulletId()) updateCollision(b);
+    };
+
     public void moveCheck(Hitboxc entity, float deltax, float deltay, SolidPred solidCheck){
         if(!solidCheck.solid(entity.tileX(), entity.tileY())){
             move(entity, deltax, deltay, solidCheck);
@@ -214,16 +221,57 @@ public class EntityCollisions{
 
     @SuppressWarnings("unchecked")
     public <T extends Hitboxc> void collide(EntityGroup<T> groupa){
-        groupa.each((Cons<T>)hitCons);
+        if(batchBullets && groupa == Groups.bullet){
+            collideBullets();
+        }else{
+            groupa.each((Cons<T>)hitCons);
+        }
     }
 
-    private void updateCollision(Hitboxc solid){
+    /** Same as calling {@link #updateCollision(Hitboxc)} for every bullet, but candidates are gathered for all bullets at once. */
+    private void collideBullets(){
+        CollisionGrid grid = bulletGrid;
+        grid.build(Groups.bullet, state.teams.present);
+
+        int[] candidates = grid.candidates();
+
+        for(int i = 0; i < grid.bulletCount(); i++){
+            Bullet bullet = grid.bullet(i);
+            int start = grid.candidateStart(i), end = grid.candidateEnd(i);
+            //skip bullets that were removed by earlier collisions
+            if(start == end || !bullet.isAdded()) continue;
+
+            sweep(bullet);
+
+            for(int j = start; j < end; j++){
+                Unit unit = grid.unit(candidates[j]);
+                //positions are checked again, as earlier collisions may have changed them
+                unit.hitbox(r1);
+                if(r2.overlaps(r1)){
+                    checkCollide(bullet, unit);
+                    if(!bullet.isAdded()) break;
+                }
+            }
+        }
+
+        grid.clear();
+
+        //bullets created by collision callbacks still collide this frame, as they would when iterating the group
+        Groups.bullet.each(lateBulletCons);
+    }
+
+    /** Sets r2 to the hitbox of the entity merged with its hitbox at the last position. */
+    private void sweep(Hitboxc solid){
         solid.hitbox(r1);
         r1.x += (solid.lastX() - solid.getX());
         r1.y += (solid.lastY() - solid.getY());
 
         solid.hitbox(r2);
         r2.merge(r1);
+    }
+
+    private void updateCollision(Hitboxc solid){
+        sweep(solid);
 
         arrOut.clear();
 
@@ -24,6 +24,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
     private IntMap<T> map;
     private QuadTree tree;
     private boolean clearing;
+    private @Nullable Cons<T> addListener, removeListener;
 
     private int index;
 
@@ -66,6 +67,12 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         return out;
     }
 
+    /** Sets the listeners that are called after an entity is added to or removed from this group, including when the group is cleared. */
+    public void setListeners(@Nullable Cons<T> added, @Nullable Cons<T> removed){
+        this.addListener = added;
+        this.removeListener = removed;
+    }
+
     public void sort(Comparator<? super T> comp){
         array.sort(comp);
     }
@@ -192,6 +199,10 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         if(mappingEnabled()){
             map.put(type.id(), type);
         }
+
+        if(addListener != null){
+            addListener.get(type);
+        }
     }
 
     public int addIndex(T type){
@@ -221,6 +232,10 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
             if(index >= idx){
                 index --;
             }
+
+            if(removeListener != null){
+                removeListener.get(type);
+            }
         }
     }
 
@@ -253,6 +268,10 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
             if(index >= position){
                 index --;
             }
+
+            if(removeListener != null){
+                removeListener.get(type);
+            }
         }
     }
 
@@ -260,6 +279,7 @@ public class EntityGroup<T extends Entityc> implements Iterable<T>{
         clearing = true;
 
         array.each(Entityc::remove);
+        if(removeListener != null) array.each(removeListener);
         array.clear();
         if(map != null) map.clear();
 
@@ -0,0 +1,193 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import arc.util.*;
+import mindustry.entities.Units.*;
+import mindustry.game.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Shared target queries for turrets.
+ * Enemy units and buildings around a coarse grid cell are gathered once per tick, and reused by every turret in that cell with a similar range.
+ * Candidates come from the same spatial queries over a larger area, so they are visited in the same order, and the results are the same as {@link Units#bestTarget}.
+ */
+public class TargetCache{
+    private static final float cellSize = tilesize * 8f, rangeStep = tilesize * 4f;
+
+    /** If false, every query goes directly to {@link Units}. */
+    public static boolean enabled = true;
+
+    /** Candidate enemy units, by requesting team, cell and range. */
+    private static final LongMap<Seq<Unit>> units = new LongMap<>();
+    /** Candidate buildings, by owning team, cell and range. */
+    private static final LongMap<Seq<Building>> buildings = new LongMap<>();
+    private static final Seq<Seq<Unit>> unitPool = new Seq<>();
+    private static final Seq<Seq<Building>> buildingPool = new Seq<>();
+    private static final Rect rect = new Rect();
+    private static long lastUpdate = -1;
+
+    private static Seq<Unit> gatherUnits;
+    private static final Cons<Unit> unitAdder = u -> gatherUnits.add(u);
+
+    /** Same as {@link Units#bestTarget(Team, float, float, float, Boolf, Boolf, Sortf)}. */
+    public static Teamc bestTarget(Team team, float x, float y, float range, Boolf<Unit> unitPred, Boolf<Building> tilePred, Sortf sort){
+        if(team == Team.derelict) return null;
+
+        Unit unit = bestEnemy(team, x, y, range, unitPred, sort);
+        if(unit != null){
+            return unit;
+        }else{
+            return findEnemyTile(team, x, y, range, tilePred);
+        }
+    }
+
+    /** Same as {@link Units#bestEnemy(Team, float, float, float, Boolf, Sortf)}. */
+    public static Unit bestEnemy(Team team, float x, float y, float range, Boolf<Unit> predicate, Sortf sort){
+        if(!enabled) return Units.bestEnemy(team, x, y, range, predicate, sort);
+        if(team == Team.derelict) return null;
+
+        Seq<Unit> candidates = enemies(team, x, y, range);
+        Unit result = null;
+        float cdist = 0f, cpriority = -99999f;
+
+        for(int i = 0; i < candidates.size; i++){
+            Unit e = candidates.items[i];
+            //the candidates cover a larger area than the query; only keep units the query itself would have returned
+            float reach = range + e.hitSize / 2f;
+            if(Math.abs(e.x - x) >= reach || Math.abs(e.y - y) >= reach) continue;
+
+            if(e.dead() || !predicate.get(e) || e.team == Team.derelict || !e.within(x, y, reach) || !e.targetable(team) || e.inFogTo(team)) continue;
+
+            float cost = sort.cost(e, x, y);
+            if((result == null || cost < cdist || e.type.targetPriority > cpriority) && e.type.targetPriority >= cpriority){
+                result = e;
+                cdist = cost;
+                cpriority = e.type.targetPriority;
+            }
+        }
+
+        return result;
+    }
+
+    /** Same as {@link Units#findEnemyTile(Team, float, float, float, Boolf)}. */
+    public static @Nullable Building findEnemyTile(Team team, float x, float y, float range, Boolf<Building> pred){
+        if(!enabled) return Units.findEnemyTile(team, x, y, range, pred);
+        if(team == Team.derelict) return null;
+
+        Building target = null;
+        float targetDist = 0;
+        Seq<Team> teams = indexer.activeTeams();
+
+        for(int i = 0; i < teams.size; i++){
+            Team enemy = teams.items[i];
+            if(enemy == team || (enemy == Team.derelict && !state.rules.coreCapture)) continue;
+
+            Building candidate = findTile(enemy, team, x, y, range, pred);
+            if(candidate == null) continue;
+
+            //if a block has the same priority, the closer one should be targeted
+            float dist = candidate.dst(x, y) - candidate.hitSize() / 2f;
+            if(target == null ||
+            (dist < targetDist && candidate.block.priority >= target.block.priority) ||
+            (candidate.block.priority > target.block.priority)){
+                target = candidate;
+                targetDist = dist;
+            }
+        }
+
+        return target;
+    }
+
+    /** Same as BlockIndexer#findTile with priority, restricted to buildings discovered by the searching team. */
+    private static @Nullable Building findTile(Team owner, Team searcher, float x, float y, float range, Boolf<Building> pred){
+        Seq<Building> candidates = buildings(owner, x, y, range);
+        Building closest = null;
+        float dst = 0;
+
+        for(int i = 0; i < candidates.size; i++){
+            var next = candidates.items[i];
+
+            //buildings removed earlier in this tick are still cached
+            if(!next.isValid() || !pred.get(next) || !next.isDiscovered(searcher) || !next.block.targetable) continue;
+
+            float bdst = next.dst(x, y) - next.hitSize() / 2f;
+            if(bdst < range && (closest == null ||
+            (bdst < dst && closest.block.priority <= next.block.priority) ||
+            (closest.block.priority < next.block.priority))){
+                dst = bdst;
+                closest = next;
+            }
+        }
+
+        return closest;
+    }
+
+    private static Seq<Unit> enemies(Team team, float x, float y, float range){
+        validate();
+
+        long key = key(team, x, y, range);
+        Seq<Unit> out = units.get(key);
+        if(out == null){
+            out = unitPool.isEmpty() ? new Seq<>(false, 16, Unit.class) : unitPool.pop();
+            units.put(key, out);
+
+            gatherUnits = out;
+            area(key);
+            Units.nearbyEnemies(team, rect.x, rect.y, rect.width, rect.height, unitAdder);
+            gatherUnits = null;
+        }
+        return out;
+    }
+
+    private static Seq<Building> buildings(Team owner, float x, float y, float range){
+        validate();
+
+        long key = key(owner, x, y, range);
+        Seq<Building> out = buildings.get(key);
+        if(out == null){
+            out = buildingPool.isEmpty() ? new Seq<>(false, 16, Building.class) : buildingPool.pop();
+            buildings.put(key, out);
+
+            var tree = owner.data().buildingTree;
+            if(tree != null){
+                tree.intersect(area(key), out);
+            }
+        }
+        return out;
+    }
+
+    /** Drops all candidates gathered during an earlier tick. */
+    private static void validate(){
+        if(lastUpdate == state.updateId) return;
+        lastUpdate = state.updateId;
+
+        for(var list : units.values()){
+            list.clear();
+            unitPool.add(list);
+        }
+        for(var list : buildings.values()){
+            list.clear();
+            buildingPool.add(list);
+        }
+        units.clear();
+        buildings.clear();
+    }
+
+    /** Packs the team, the cell of the position and the range, rounded up to the next step, into a key. */
+    private static long key(Team team, float x, float y, float range){
+        long cx = (int)Math.floor(x / cellSize) & 0xffff, cy = (int)Math.floor(y / cellSize) & 0xffff;
+        long steps = Math.min((int)Math.ceil(range / rangeStep), 0xffffff);
+        return team.id | (cx << 8) | (cy << 24) | (steps << 40);
+    }
+
+    /** Sets the rectangle to the area covered by a key: its cell, expanded by its range. */
+    private static Rect area(long key){
+        float cx = (short)((key >>> 8) & 0xffff), cy = (short)((key >>> 24) & 0xffff);
+        float range = ((key >>> 40) & 0xffffff) * rangeStep;
+        return rect.set(cx * cellSize - range, cy * cellSize - range, cellSize + range * 2f, cellSize + range * 2f);
+    }
+}
@@ -0,0 +1,187 @@
+package mindustry.entities;
+
+import arc.func.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.gen.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Persistent spatial index for the units of a single team.
+ * Units are bucketed into a uniform grid by their position, and only change buckets when they cross a cell boundary,
+ * so keeping the index up to date is O(1) per unit instead of a full rebuild.
+ * Queries behave like {@link QuadTree#intersect(Rect, Cons)}: a unit is returned if its current hitbox overlaps the query rectangle.
+ */
+@SuppressWarnings("unchecked")
+public class UnitIndex{
+    private static final float cellSize = tilesize * 8f;
+    /** Extra query margin, as units may move away from their cell before the next update. */
+    private static final float moveMargin = tilesize * 2f;
+
+    /** Cell index of each unit, by ID. */
+    private final IntIntMap unitCells = new IntIntMap();
+    private Seq<Unit>[] cells = new Seq[0];
+    private float originX, originY;
+    private int width, height;
+    /** Largest hitbox of any unit that has been in this index. */
+    private float maxHitSize;
+    /** Query results, one per level of nesting, as consumers may query the index again. */
+    private final Seq<Seq<Unit>> results = new Seq<>();
+    private int depth;
+
+    public UnitIndex(Rect bounds){
+        resize(bounds);
+    }
+
+    /** Changes the indexed area, keeping all units. Units outside of it are placed into the border cells. */
+    public void resize(Rect bounds){
+        Seq<Unit> all = new Seq<>(false, unitCells.size);
+        getObjects(all);
+
+        originX = bounds.x;
+        originY = bounds.y;
+        width = Math.max((int)Math.ceil(bounds.width / cellSize), 1);
+        height = Math.max((int)Math.ceil(bounds.height / cellSize), 1);
+        cells = new Seq[width * height];
+        unitCells.clear();
+
+        all.each(this::insert);
+    }
+
+    /** @return whether this index covers exactly this area. */
+    public boolean covers(Rect bounds){
+        return originX == bounds.x && originY == bounds.y &&
+            width == Math.max((int)Math.ceil(bounds.width / cellSize), 1) && height == Math.max((int)Math.ceil(bounds.height / cellSize), 1);
+    }
+
+    /** Adds a unit, or moves it to a different cell if it is already present and has crossed a cell boundary. */
+    public void insert(Unit unit){
+        int cell = cell(unit.x, unit.y);
+        int prev = unitCells.get(unit.id, -1);
+        if(prev == cell) return;
+        if(prev != -1) cells[prev].remove(unit, true);
+
+        add(unit, cell);
+    }
+
+    public void remove(Unit unit){
+        int cell = unitCells.remove(unit.id, -1);
+        if(cell != -1){
+            cells[cell].remove(unit, true);
+        }
+    }
+
+    public boolean contains(Unit unit){
+        return unitCells.containsKey(unit.id);
+    }
+
+    public int size(){
+        return unitCells.size;
+    }
+
+    public void clear(){
+        for(Seq<Unit> cell : cells){
+            if(cell != null) cell.clear();
+        }
+        unitCells.clear();
+    }
+
+    /** Adds all units in this index to the output, in cell order. */
+    public void getObjects(Seq<Unit> out){
+        for(Seq<Unit> cell : cells){
+            if(cell != null) out.addAll(cell);
+        }
+    }
+
+    public void intersect(Rect rect, Cons<? super Unit> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    public void intersect(Rect rect, Seq<? super Unit> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    public void intersect(float x, float y, float width, float height, Seq<? super Unit> out){
+        if(unitCells.size == 0) return;
+
+        int x1 = cellX(x - margin()), y1 = cellY(y - margin()), x2 = cellX(x + width + margin()), y2 = cellY(y + height + margin());
+        for(int cy = y1; cy <= y2; cy++){
+            for(int cx = x1; cx <= x2; cx++){
+                Seq<Unit> cell = cells[cx + cy * this.width];
+                if(cell == null) continue;
+
+                Unit[] items = cell.items;
+                for(int i = 0, n = cell.size; i < n; i++){
+                    if(overlaps(items[i], x, y, width, height)) out.add(items[i]);
+                }
+            }
+        }
+    }
+
+    public void intersect(float x, float y, float width, float height, Cons<? super Unit> out){
+        if(unitCells.size == 0) return;
+
+        if(depth >= results.size) results.add(new Seq<>(false, 16, Unit.class));
+        Seq<Unit> result = results.get(depth++);
+
+        //collect everything first, as the consumer may kill or move units, which reorders the cells
+        try{
+            intersect(x, y, width, height, result);
+            for(int i = 0; i < result.size; i++){
+                out.get(result.items[i]);
+            }
+        }finally{
+            result.clear();
+            depth --;
+        }
+    }
+
+    /** @return whether any unit overlaps this rectangle. */
+    public boolean any(float x, float y, float width, float height){
+        if(unitCells.size == 0) return false;
+
+        int x1 = cellX(x - margin()), y1 = cellY(y - margin()), x2 = cellX(x + width + margin()), y2 = cellY(y + height + margin());
+        for(int cy = y1; cy <= y2; cy++){
+            for(int cx = x1; cx <= x2; cx++){
+                Seq<Unit> cell = cells[cx + cy * this.width];
+                if(cell == null) continue;
+
+                Unit[] items = cell.items;
+                for(int i = 0, n = cell.size; i < n; i++){
+                    if(overlaps(items[i], x, y, width, height)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void add(Unit unit, int cell){
+        if(cells[cell] == null) cells[cell] = new Seq<>(false, 4, Unit.class);
+        cells[cell].add(unit);
+        unitCells.put(unit.id, cell);
+        maxHitSize = Math.max(maxHitSize, unit.hitSize);
+    }
+
+    private float margin(){
+        return maxHitSize / 2f + moveMargin;
+    }
+
+    /** Same check as {@link Rect#overlaps(Rect)} with the hitbox of the unit. */
+    private static boolean overlaps(Unit unit, float x, float y, float width, float height){
+        float half = unit.hitSize / 2f;
+        return x < unit.x + half && x + width > unit.x - half && y < unit.y + half && y + height > unit.y - half;
+    }
+
+    private int cell(float x, float y){
+        return cellX(x) + cellY(y) * width;
+    }
+
+    private int cellX(float x){
+        return Math.min(Math.max((int)((x - originX) / cellSize), 0), width - 1);
+    }
+
+    private int cellY(float y){
+        return Math.min(Math.max((int)((y - originY) / cellSize), 0), height - 1);
+    }
+}
@@ -406,10 +406,10 @@ public class Units{
     /** Iterates over all units in a rectangle. */
     public static void nearby(@Nullable Team team, float x, float y, float width, float height, Cons<Unit> cons){
         if(team != null){
-            team.data().tree().intersect(x, y, width, height, cons);
+            team.data().unitIndex().intersect(x, y, width, height, cons);
         }else{
             for(var other : state.teams.present){
-                other.tree().intersect(x, y, width, height, cons);
+                other.unitIndex().intersect(x, y, width, height, cons);
             }
         }
     }
@@ -463,7 +463,7 @@ public class Units{
         for(int i = 0; i < data.size; i++){
             var other = data.items[i];
             if(other.team != team){
-                if(other.tree().any(x, y, width, height)){
+                if(other.unitIndex().any(x, y, width, height)){
                     return true;
                 }
                 if(other.turretTree != null && other.turretTree.any(x, y, width, height)){
@@ -2104,7 +2104,13 @@ abstract class BuildingComp implements Posc, Teamc, Healthc, Buildingc, Timerc,
 
         //TODO just handle per-block instead
         if(enabled || !block.noUpdateDisabled){
-            updateTile();
+            if(profiler.enabled){
+                long time = Time.nanos();
+                updateTile();
+                profiler.block(block, Time.nanos() - time);
+            }else{
+                updateTile();
+            }
         }
     }
 
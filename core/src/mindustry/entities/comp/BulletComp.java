@@ -179,52 +179,57 @@ abstract class BulletComp implements Timedc, Damagec, Hitboxc, Teamc, Posc, Draw
         int y = y1, dy = Math.abs(y2 - y), sy = y < y2 ? 1 : -1;
         int e2, err = dx - dy;
         int ww = world.width(), wh = world.height();
+        boolean checkTiles = type.collideFloor || type.collideTerrain;
+        //when only buildings matter, tiles without one are skipped without touching the tile objects
+        Bits occupied = checkTiles ? null : world.tiles.buildingBits();
 
         while(x >= 0 && y >= 0 && x < ww && y < wh){
-            Building build = world.build(x, y);
-
-            if(type.collideFloor || type.collideTerrain){
-                Tile tile = world.tile(x, y);
-                if(
-                    type.collideFloor && (tile == null || tile.floor().hasSurface() || tile.block() != Blocks.air) ||
-                    type.collideTerrain && tile != null && tile.block() instanceof StaticWall
-                ){
-                    remove();
-                    hit = true;
-                    return;
+            if(occupied == null || occupied.get(x + y * ww)){
+                Building build = world.build(x, y);
+
+                if(checkTiles){
+                    Tile tile = world.tile(x, y);
+                    if(
+                        type.collideFloor && (tile == null || tile.floor().hasSurface() || tile.block() != Blocks.air) ||
+                        type.collideTerrain && tile != null && tile.block() instanceof StaticWall
+                    ){
+                        remove();
+                        hit = true;
+                        return;
+                    }
                 }
-            }
-
-            if(build != null && isAdded()
-                && checkUnderBuild(build, x * tilesize, y * tilesize)
-                && build.collide(self()) && type.testCollision(self(), build)
-                && !build.dead() && (type.collidesTeam || build.team != team) && !(type.pierceBuilding && hasCollided(build.id))){
 
-                boolean remove = false;
-                float health = build.health;
+                if(build != null && isAdded()
+                    && checkUnderBuild(build, x * tilesize, y * tilesize)
+                    && build.collide(self()) && type.testCollision(self(), build)
+                    && !build.dead() && (type.collidesTeam || build.team != team) && !(type.pierceBuilding && hasCollided(build.id))){
 
-                if(build.team != team){
-                    remove = build.collision(self());
-                }
+                    boolean remove = false;
+                    float health = build.health;
 
-                if(remove || type.collidesTeam){
-                    if(Mathf.dst2(lastX, lastY, x * tilesize, y * tilesize) < Mathf.dst2(lastX, lastY, this.x, this.y)){
-                        this.x = x * tilesize;
-                        this.y = y * tilesize;
+                    if(build.team != team){
+                        remove = build.collision(self());
                     }
 
-                    if(!type.pierceBuilding){
-                        hit = true;
-                        remove();
-                    }else{
-                        collided.add(build.id);
+                    if(remove || type.collidesTeam){
+                        if(Mathf.dst2(lastX, lastY, x * tilesize, y * tilesize) < Mathf.dst2(lastX, lastY, this.x, this.y)){
+                            this.x = x * tilesize;
+                            this.y = y * tilesize;
+                        }
+
+                        if(!type.pierceBuilding){
+                            hit = true;
+                            remove();
+                        }else{
+                            collided.add(build.id);
+                        }
                     }
-                }
 
-                type.hitTile(self(), build, x * tilesize, y * tilesize, health, true);
+                    type.hitTile(self(), build, x * tilesize, y * tilesize, health, true);
 
-                //stop raycasting when building is hit
-                if(type.pierceBuilding) return;
+                    //stop raycasting when building is hit
+                    if(type.pierceBuilding) return;
+                }
             }
 
             if(x == x2 && y == y2) break;
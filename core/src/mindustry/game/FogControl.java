@@ -15,6 +15,8 @@ import mindustry.io.*;
 import mindustry.world.meta.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static mindustry.Vars.*;
 
@@ -28,8 +30,19 @@ public final class FogControl implements CustomChunk{
 
     private final LongSeq staticEvents = new LongSeq();
     private final LongSeq dynamicEventQueue = new LongSeq(), unitEventQueue = new LongSeq();
+    /** entity IDs of the sources in the dynamic queues, and pairs of team ID + event count for each flushed team */
+    private final IntSeq dynamicIdQueue = new IntSeq(), unitIdQueue = new IntSeq(), dynamicTeamQueue = new IntSeq();
     /** access must be synchronized; accessed from both threads */
     private final LongSeq dynamicEvents = new LongSeq(100);
+    /** access must be synchronized with dynamicEvents */
+    private final IntSeq dynamicIds = new IntSeq(100), dynamicTeams = new IntSeq();
+
+    /** If true, dynamic fog keeps per-tile source counts and only redraws what changed, instead of redrawing every source. */
+    public boolean incremental = true;
+    /** If true, incremental dynamic fog of different teams is updated on multiple threads. */
+    public boolean parallelTeams = true;
+    /** If false, dynamic fog is drawn during {@link #update()} on the calling thread instead of on the fog thread, so results are available immediately. */
+    public boolean threaded = true;
 
     private @Nullable Thread staticFogThread;
     private @Nullable Thread dynamicFogThread;
@@ -204,7 +217,7 @@ public final class FogControl implements CustomChunk{
             staticFogThread.start();
         }
 
-        if(dynamicFogThread == null){
+        if(dynamicFogThread == null && threaded){
             dynamicFogThread = new DynamicFogThread();
             dynamicFogThread.setPriority(Thread.NORM_PRIORITY - 1);
             dynamicFogThread.setDaemon(true);
@@ -213,12 +226,15 @@ public final class FogControl implements CustomChunk{
 
         //clear to prepare for queuing fog radius from units and buildings
         dynamicEventQueue.clear();
+        dynamicIdQueue.clear();
+        dynamicTeamQueue.clear();
 
         for(var team : state.teams.present){
             //AI teams do not have fog
             if(!team.team.isOnlyAI()){
                 //separate for each team
                 unitEventQueue.clear();
+                unitIdQueue.clear();
 
                 FogData data = fog[team.team.id];
 
@@ -235,6 +251,7 @@ public final class FogControl implements CustomChunk{
 
                         //always update the dynamic events, but only *flush* the results when necessary?
                         unitEventQueue.add(event);
+                        unitIdQueue.add(unit.id);
 
                         if(unit.lastFogPos != pos){
                             pushEvent(event, false);
@@ -249,35 +266,47 @@ public final class FogControl implements CustomChunk{
                     data.dynamicUpdated = false;
                     data.lastDynamicMs = Time.millis();
 
+                    int start = dynamicEventQueue.size;
+
                     //add building updates
                     for(var build : indexer.getFlagged(team.team, BlockFlag.hasFogRadius)){
                         dynamicEventQueue.add(FogEvent.get(build.tile.x, build.tile.y, Mathf.round(build.fogRadius()), build.team.id));
+                        dynamicIdQueue.add(build.id);
                     }
 
                     //add unit updates
                     dynamicEventQueue.addAll(unitEventQueue);
+                    dynamicIdQueue.addAll(unitIdQueue);
+
+                    dynamicTeamQueue.add(team.team.id, dynamicEventQueue.size - start);
                 }
             }
         }
 
-        if(dynamicEventQueue.size > 0){
+        if(dynamicTeamQueue.size > 0){
             //flush unit events over when something happens
             synchronized(dynamicEvents){
                 dynamicEvents.clear();
                 dynamicEvents.addAll(dynamicEventQueue);
+                dynamicIds.clear();
+                dynamicIds.addAll(dynamicIdQueue);
+                dynamicTeams.clear();
+                dynamicTeams.addAll(dynamicTeamQueue);
             }
             dynamicEventQueue.clear();
 
             //force update so visibility doesn't have a pop-in
-            if(justLoaded){
+            if(justLoaded || !threaded){
                 updateDynamic(new Bits(256));
                 justLoaded = false;
             }
 
             //notify that it's time for rendering
             //TODO this WILL block until it is done rendering, which is inherently problematic.
-            synchronized(notifyDynamic){
-                notifyDynamic.notify();
+            if(threaded){
+                synchronized(notifyDynamic){
+                    notifyDynamic.notify();
+                }
             }
         }
 
@@ -367,6 +396,11 @@ public final class FogControl implements CustomChunk{
     }
 
     void updateDynamic(Bits cleared){
+        if(incremental){
+            updateDynamicIncremental();
+            return;
+        }
+
         cleared.clear();
 
         //ugly sync
@@ -395,6 +429,8 @@ public final class FogControl implements CustomChunk{
                 }
             }
             dynamicEvents.clear();
+            dynamicIds.clear();
+            dynamicTeams.clear();
         }
 
         //swap step, no need for synchronization or anything
@@ -410,6 +446,52 @@ public final class FogControl implements CustomChunk{
         }
     }
 
+    void updateDynamicIncremental(){
+        long[] events;
+        int[] ids, teams;
+
+        synchronized(dynamicEvents){
+            events = dynamicEvents.toArray();
+            ids = dynamicIds.toArray();
+            teams = dynamicTeams.toArray();
+            dynamicEvents.clear();
+            dynamicIds.clear();
+            dynamicTeams.clear();
+        }
+
+        var fog = this.fog;
+        if(fog == null) return;
+
+        ArrayList<Callable<Object>> tasks = new ArrayList<>(teams.length / 2);
+
+        //each team's sources are contiguous, in the order the teams were flushed
+        for(int i = 0, offset = 0; i < teams.length; i += 2){
+            var data = fog[teams[i]];
+            int from = offset, to = offset + teams[i + 1];
+            offset = to;
+
+            if(data != null){
+                tasks.add(Executors.callable(() -> data.updateSources(ids, events, from, to)));
+            }
+        }
+
+        try{
+            if(parallelTeams && tasks.size() > 1){
+                for(var future : mainExecutor.invokeAll(tasks)){
+                    future.get();
+                }
+            }else{
+                for(var task : tasks){
+                    task.call();
+                }
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void write(DataOutput stream) throws IOException{
         int used = 0;
@@ -531,12 +613,53 @@ public final class FogControl implements CustomChunk{
         arr.set(off + x1, off + x2);
     }
 
+    /** Cached half-widths of every row of a circle drawn with {@link #circle}, indexed by radius. */
+    static final IntMap<int[]> circleRows = new IntMap<>();
+
+    /** @return the half-width of each row of a circle, from -radius to +radius; the same area {@link #circle} fills. */
+    static int[] circleRows(int radius){
+        synchronized(circleRows){
+            int[] rows = circleRows.get(radius);
+            if(rows != null) return rows;
+
+            rows = new int[radius * 2 + 1];
+            int f = 1 - radius;
+            int ddFx = 1, ddFy = -2 * radius;
+            int px = 0, py = radius;
+
+            rows[radius] = radius;
+
+            while(px < py){
+                if(f >= 0){
+                    py--;
+                    ddFy += 2;
+                    f += ddFy;
+                }
+                px++;
+                ddFx += 2;
+                f += ddFx;
+                rows[radius + py] = rows[radius - py] = Math.max(rows[radius + py], px);
+                rows[radius + px] = rows[radius - px] = Math.max(rows[radius + px], py);
+            }
+
+            circleRows.put(radius, rows);
+            return rows;
+        }
+    }
+
     static class FogData{
         /** dynamic double-buffered data for dynamic (live) coverage */
         volatile Bits read, write;
         /** static map exploration fog*/
         final Bits staticData;
 
+        /** incremental dynamic fog: amount of sources covering each tile */
+        int[] counts;
+        /** incremental dynamic fog: entity IDs and events of the sources currently drawn, sorted by ID */
+        int[] sourceIds = {};
+        long[] sourceEvents = {};
+        int sources;
+
         /** last dynamic update timestamp. */
         long lastDynamicMs = 0;
         /** if true, a dynamic fog update must be scheduled. */
@@ -549,6 +672,112 @@ public final class FogControl implements CustomChunk{
             write = new Bits(len);
             staticData = new Bits(len);
         }
+
+        /**
+         * Replaces the drawn sources with the given ones, only redrawing the parts of circles that changed.
+         * Sources are matched by entity ID; a moved source only updates the edges of its circle.
+         */
+        void updateSources(int[] ids, long[] events, int from, int to){
+            if(counts == null) counts = new int[ww * wh];
+
+            int size = to - from;
+            long[] order = new long[size];
+            for(int i = 0; i < size; i++){
+                order[i] = ((long)ids[from + i] << 32) | i;
+            }
+            Arrays.sort(order);
+
+            int[] nextIds = new int[size];
+            long[] nextEvents = new long[size];
+            for(int i = 0; i < size; i++){
+                int index = from + (int)order[i];
+                nextIds[i] = ids[index];
+                nextEvents[i] = events[index];
+            }
+
+            //merge the old and new sorted sources
+            int a = 0, b = 0;
+            while(a < sources || b < size){
+                if(b >= size || (a < sources && sourceIds[a] < nextIds[b])){
+                    move(sourceEvents[a++], 0L);
+                }else if(a >= sources || nextIds[b] < sourceIds[a]){
+                    move(0L, nextEvents[b++]);
+                }else{
+                    if(sourceEvents[a] != nextEvents[b]){
+                        move(sourceEvents[a], nextEvents[b]);
+                    }
+                    a++;
+                    b++;
+                }
+            }
+
+            sourceIds = nextIds;
+            sourceEvents = nextEvents;
+            sources = size;
+
+            //publish, then bring the new write buffer up to date
+            Bits temp = read;
+            read = write;
+            write = temp;
+            write.clear();
+            write.or(read);
+        }
+
+        /** Moves a circle from one event to another. A zero event is an absent circle. */
+        void move(long from, long to){
+            //radius is always +1 to keep up with visuals
+            int orad = from == 0L || FogEvent.radius(from) <= 0 ? -1 : FogEvent.radius(from) + 1;
+            int nrad = to == 0L || FogEvent.radius(to) <= 0 ? -1 : FogEvent.radius(to) + 1;
+            int ox = FogEvent.x(from), oy = FogEvent.y(from), nx = FogEvent.x(to), ny = FogEvent.y(to);
+
+            int[] orows = orad < 0 ? null : circleRows(orad), nrows = nrad < 0 ? null : circleRows(nrad);
+            int miny = Math.min(orad < 0 ? Integer.MAX_VALUE : oy - orad, nrad < 0 ? Integer.MAX_VALUE : ny - nrad);
+            int maxy = Math.max(orad < 0 ? Integer.MIN_VALUE : oy + orad, nrad < 0 ? Integer.MIN_VALUE : ny + nrad);
+
+            for(int y = Math.max(miny, 0); y <= Math.min(maxy, wh - 1); y++){
+                boolean hasOld = orad >= 0 && Math.abs(y - oy) <= orad, hasNew = nrad >= 0 && Math.abs(y - ny) <= nrad;
+                int oa = 0, ob = -1, na = 0, nb = -1;
+
+                if(hasOld){
+                    int w = orows[y - oy + orad];
+                    oa = ox - w;
+                    ob = ox + w;
+                }
+
+                if(hasNew){
+                    int w = nrows[y - ny + nrad];
+                    na = nx - w;
+                    nb = nx + w;
+                }
+
+                if(!hasOld){
+                    span(y, na, nb, true);
+                }else if(!hasNew){
+                    span(y, oa, ob, false);
+                }else{
+                    //only the edges that entered or left the circle change
+                    span(y, na, Math.min(nb, oa - 1), true);
+                    span(y, Math.max(na, ob + 1), nb, true);
+                    span(y, oa, Math.min(ob, na - 1), false);
+                    span(y, Math.max(oa, nb + 1), ob, false);
+                }
+            }
+        }
+
+        void span(int y, int x1, int x2, boolean add){
+            if(x1 < 0) x1 = 0;
+            if(x2 >= ww) x2 = ww - 1;
+            int off = y * ww;
+
+            for(int x = x1; x <= x2; x++){
+                int index = off + x;
+                if(add){
+                    if(counts[index]++ == 0) write.set(index);
+                }else{
+                    if(--counts[index] == 0) write.clear(index);
+                }
+            }
+        }
     }
 
     @Struct
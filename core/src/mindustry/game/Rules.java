@@ -57,6 +57,8 @@ public class Rules{
     public boolean unitAmmo = false;
     /** EXPERIMENTAL! If true, blocks will update in units and share power. */
     public boolean unitPayloadUpdate = false;
+    /** If true, unit physics uses a flat spatial hash broadphase instead of quadtrees. Faster for dense groups of units. */
+    public boolean gridPhysics = false;
     /** Whether cores add to unit limit */
     public boolean unitCapVariable = true;
     /** If true, unit spawn points are shown. */
@@ -221,8 +221,10 @@ public class Saves{
         public void save(){
             long prev = totalPlaytime;
 
-            SaveIO.save(file);
-            meta = SaveIO.getMeta(file);
+            //only capture here; compression and disk writes happen in the background
+            var snapshot = SaveIO.capture();
+            meta = SaveIO.getMeta(snapshot.stream());
+            SaveIO.saveAsync(file, snapshot, null, this::saveFailed);
             if(state.isGame()){
                 current = this;
             }
@@ -231,6 +233,15 @@ public class Saves{
             savePreview();
         }
 
+        /** Reports a write that failed in the background; capture failures are thrown by {@link #save()} instead. */
+        private void saveFailed(Throwable e){
+            Log.err("Failed to write save to @", file);
+            Log.err(e);
+            if(!headless){
+                ui.showException("[accent]" + Core.bundle.get("savefail"), e);
+            }
+        }
+
         private void savePreview(){
             if(Core.assets.isLoaded(loadPreviewFile().path())){
                 Core.assets.unload(loadPreviewFile().path());
@@ -341,6 +352,9 @@ public class Saves{
         }
 
         public void importFile(Fi from) throws IOException{
+            //a pending background write would overwrite the imported file
+            SaveIO.awaitSaves();
+
             try{
                 from.copyTo(file);
                 if(previewFile().exists()){
@@ -361,6 +375,9 @@ public class Saves{
         }
 
         public void delete(){
+            //a pending background write would recreate the file after it is deleted
+            SaveIO.awaitSaves();
+
             if(SaveIO.backupFileFor(file).exists()){
                 SaveIO.backupFileFor(file).delete();
             }
@@ -8,6 +8,7 @@ import arc.struct.*;
 import arc.util.*;
 import mindustry.*;
 import mindustry.ai.*;
+import mindustry.entities.*;
 import mindustry.gen.*;
 import mindustry.type.*;
 import mindustry.world.*;
@@ -28,6 +29,10 @@ public class Teams{
     public Seq<TeamData> present = new Seq<>(TeamData.class);
     /** Current boss units. */
     public Seq<Unit> bosses = new Seq<>();
+    /** Team of each unit in a {@link TeamData#unitIndex()}, by unit ID. */
+    private final IntIntMap indexedTeams = new IntIntMap();
+    /** Incremented on every stat update, so that legacy unit quadtrees know when they are outdated. */
+    private static int statUpdates;
 
     public Teams(){
         active.add(get(Team.crux));
@@ -149,9 +154,36 @@ public class Teams{
         }
     }
 
+    /** Adds a unit to the spatial index of its team. Called when a unit is added to the world. */
+    public void unitAdded(Unit unit){
+        if(unit.type == null) return;
+        index(unit);
+    }
+
+    /** Removes a unit from the spatial index of its team. Called when a unit is removed from the world. */
+    public void unitRemoved(Unit unit){
+        int team = indexedTeams.remove(unit.id, -1);
+        if(team != -1){
+            get(Team.all[team]).unitIndex().remove(unit);
+        }
+    }
+
+    /** Adds the unit to the index of its current team, or moves it to its current cell if it is already there. */
+    private void index(Unit unit){
+        int team = indexedTeams.get(unit.id, -1);
+        if(team != unit.team.id){
+            if(team != -1) get(Team.all[team]).unitIndex().remove(unit);
+            indexedTeams.put(unit.id, unit.team.id);
+        }
+        unit.team.data().unitIndex().insert(unit);
+    }
+
     public void updateTeamStats(){
         present.clear();
         bosses.clear();
+        statUpdates ++;
+
+        Rect bounds = world.getQuadBounds(Tmp.r1);
 
         for(Team team : Team.all){
             TeamData data = team.data();
@@ -163,8 +195,8 @@ public class Teams{
             if(data.cores.size > 0){
                 data.lastCore = data.cores.first();
             }
-            if(data.unitTree != null){
-                data.unitTree.clear();
+            if(data.unitIndex != null && !data.unitIndex.covers(bounds)){
+                data.unitIndex.resize(bounds);
             }
 
             if(data.typeCounts != null){
@@ -181,11 +213,14 @@ public class Teams{
             }
         }
 
-        //TODO this is slow and dumb
+        int indexed = 0;
+
         for(Unit unit : Groups.unit){
             if(unit.type == null) continue;
             TeamData data = unit.team.data();
-            data.tree().insert(unit);
+            //units only change cells when they cross a cell boundary or change teams
+            index(unit);
+            indexed ++;
             data.units.add(unit);
             data.presentFlag = true;
 
@@ -206,6 +241,17 @@ public class Teams{
             count(unit);
         }
 
+        //units that were removed without notifying this instance, e.g. after the teams were replaced; rebuild from scratch
+        if(indexedTeams.size != indexed){
+            indexedTeams.clear();
+            for(TeamData data : map){
+                if(data != null && data.unitIndex != null) data.unitIndex.clear();
+            }
+            for(Unit unit : Groups.unit){
+                if(unit.type != null) index(unit);
+            }
+        }
+
         for(var player : Groups.player){
             player.team().data().players.add(player);
         }
@@ -261,8 +307,11 @@ public class Teams{
         public @Nullable QuadTree<Building> buildingTree;
         /** Turrets by range. Null if not active. */
         public @Nullable QuadTree<Building> turretTree;
-        /** Quadtree for units of this team. Do not access directly. */
+        /** Quadtree for units of this team, rebuilt from the unit list when requested. Do not access directly. */
         public @Nullable QuadTree<Unit> unitTree;
+        /** Spatial index for units of this team. Do not access directly. */
+        public @Nullable UnitIndex unitIndex;
+        private int unitTreeUpdate = -1;
         /** Current unit cap. Do not modify externally. */
         public int unitCap;
         /** Total unit count. */
@@ -383,8 +432,25 @@ public class Teams{
             typeCounts[type.id] = Math.max(amount + typeCounts[type.id], 0);
         }
 
+        /** @return the spatial index for units of this team, which is kept up to date every frame. */
+        public UnitIndex unitIndex(){
+            if(unitIndex == null) unitIndex = new UnitIndex(Vars.world.getQuadBounds(new Rect()));
+            return unitIndex;
+        }
+
+        /**
+         * @return a quadtree of the units of this team, rebuilt at most once per frame when requested.
+         * Prefer {@link #unitIndex()}, which has the same queries and is never rebuilt.
+         */
         public QuadTree<Unit> tree(){
             if(unitTree == null) unitTree = new QuadTree<>(Vars.world.getQuadBounds(new Rect()));
+            if(unitTreeUpdate != statUpdates){
+                unitTreeUpdate = statUpdates;
+                unitTree.clear();
+                for(int i = 0; i < units.size; i++){
+                    unitTree.insert(units.items[i]);
+                }
+            }
             return unitTree;
         }
 
@@ -364,8 +364,20 @@ public class MinimapRenderer{
     }
 
     public void updateAll(){
-        for(Tile tile : world.tiles){
-            pixmap.set(tile.x, pixmap.height - 1 - tile.y, colorFor(tile));
+        //the tile above each tile is read from the flat ID arrays, unless it has a building
+        short[] floorIds = world.tiles.floorIds(), blockIds = world.tiles.blockIds();
+        Bits buildings = world.tiles.buildingBits();
+        Seq<Block> blocks = content.blocks();
+        int width = world.width(), height = world.height();
+
+        for(int i = 0; i < width * height; i++){
+            Tile tile = world.tiles.geti(i);
+            int above = i + width;
+            boolean top = tile.y >= height - 1;
+            boolean solidAbove = !top && (buildings.get(above) ? realBlock(world.tiles.geti(above)) : blocks.get(blockIds[above])).solid;
+            boolean liquidAbove = !top && blocks.get(floorIds[above]).asFloor().isLiquid;
+
+            pixmap.set(tile.x, pixmap.height - 1 - tile.y, colorFor(tile, solidAbove, liquidAbove));
         }
         texture.draw(pixmap);
     }
@@ -413,15 +425,20 @@ public class MinimapRenderer{
 
     private int colorFor(Tile tile){
         if(tile == null) return 0;
+        Tile above = tile.y < world.height() - 1 ? world.tile(tile.x, tile.y + 1) : null;
+        return colorFor(tile, above != null && realBlock(above).solid, above != null && above.floor().isLiquid);
+    }
+
+    private int colorFor(Tile tile, boolean solidAbove, boolean liquidAbove){
         Block real = realBlock(tile);
         int bc = real.minimapColor(tile);
 
         Color color = Tmp.c1.set(bc == 0 ? MapIO.colorFor(real, tile.floor(), tile.overlay(), tile.team()) : bc);
         color.mul(1f - Mathf.clamp(world.getDarkness(tile.x, tile.y) / 4f));
 
-        if(real == Blocks.air && tile.y < world.height() - 1 && realBlock(world.tile(tile.x, tile.y + 1)).solid){
+        if(real == Blocks.air && solidAbove){
             color.mul(0.7f);
-        }else if(tile.floor().isLiquid && (tile.y >= world.height() - 1 || !world.tile(tile.x, tile.y + 1).floor().isLiquid)){
+        }else if(tile.floor().isLiquid && !liquidAbove){
             color.mul(0.84f, 0.84f, 0.9f, 1f);
         }
 
@@ -1625,7 +1625,7 @@ public abstract class InputHandler implements InputProcessor, GestureListener{
     }
 
     public @Nullable Unit selectedCommandUnit(float x, float y){
-        var tree = player.team().data().tree();
+        var tree = player.team().data().unitIndex();
         tmpUnits.clear();
         float rad = 4f;
         tree.intersect(x - rad/2f, y - rad/2f, rad, rad, tmpUnits);
@@ -1639,7 +1639,7 @@ public abstract class InputHandler implements InputProcessor, GestureListener{
         Seq<TeamData> data = state.teams.present;
         for(int i = 0; i < data.size; i++){
             if(data.items[i].team != player.team()){
-                data.items[i].tree().intersect(x - rad / 2f, y - rad / 2f, rad, rad, tmpUnits);
+                data.items[i].unitIndex().intersect(x - rad / 2f, y - rad / 2f, rad, rad, tmpUnits);
             }
         }
 
@@ -1647,7 +1647,7 @@ public abstract class InputHandler implements InputProcessor, GestureListener{
     }
 
     public Seq<Unit> selectedCommandUnits(float x, float y, float w, float h, Boolf<Unit> predicate){
-        var tree = player.team().data().tree();
+        var tree = player.team().data().unitIndex();
         tmpUnits.clear();
         float rad = 4f;
         tree.intersect(Tmp.r1.set(x - rad/2f, y - rad/2f, rad*2f + w, rad*2f + h).normalize(), tmpUnits);
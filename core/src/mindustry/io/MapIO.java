@@ -7,13 +7,14 @@ import arc.util.io.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.game.*;
+import mindustry.io.versions.*;
+import mindustry.io.versions.Save8.*;
 import mindustry.maps.*;
 import mindustry.world.*;
 import mindustry.world.blocks.environment.*;
 import mindustry.world.blocks.storage.*;
 
 import java.io.*;
-import java.util.zip.*;
 
 import static mindustry.Vars.*;
 
@@ -35,7 +36,7 @@ public class MapIO{
     }
 
     public static Map createMap(Fi file, boolean custom) throws IOException{
-        try(InputStream is = new InflaterInputStream(file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
+        try(InputStream is = SaveIO.openStream(file); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
             SaveIO.readHeader(stream);
             int version = stream.readInt();
             SaveVersion ver = SaveIO.getSaveWriter(version);
@@ -65,7 +66,11 @@ public class MapIO{
         map.spawns = 0;
         map.teams.clear();
 
-        try(InputStream is = new InflaterInputStream(map.file.read(bufferSize)); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
+        if(map.version == SaveIO.chunkedVersion.version){
+            return generateRegionPreview(map);
+        }
+
+        try(InputStream is = SaveIO.openStream(map.file); CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
             SaveIO.readHeader(stream);
             int version = stream.readInt();
             SaveVersion ver = SaveIO.getSaveWriter(version);
@@ -149,6 +154,72 @@ public class MapIO{
         }
     }
 
+    /** Draws the preview of a region save one region at a time, without creating tiles or reading buildings. */
+    static Pixmap generateRegionPreview(Map map) throws IOException{
+        Save8 ver = SaveIO.chunkedVersion;
+        Seq<MapRegion> regions = new Seq<>();
+        for(int ry = 0; ry < Save8.regions(map.height); ry++){
+            for(int rx = 0; rx < Save8.regions(map.width); rx++){
+                regions.add(ver.readRegion(map.file, rx, ry));
+            }
+        }
+
+        Pixmap floors = new Pixmap(map.width, map.height);
+        Pixmap walls = new Pixmap(map.width, map.height);
+        int black = 255;
+        int shade = Color.rgba8888(0f, 0f, 0f, 0.5f);
+
+        //floors of every region first, as walls shade the tile above them, which may be in the next region
+        for(MapRegion region : regions){
+            for(int i = 0; i < region.floors.length; i++){
+                int x = region.x + i % region.width, y = region.y + i / region.width;
+                Block overlay = content.block(region.overlays[i]);
+                if(overlay != Blocks.air){
+                    floors.set(x, floors.height - 1 - y, colorFor(Blocks.air, Blocks.air, overlay, Team.derelict));
+                }else{
+                    floors.set(x, floors.height - 1 - y, colorFor(Blocks.air, content.block(region.floors[i]), Blocks.air, Team.derelict));
+                }
+                if(overlay == Blocks.spawn){
+                    map.spawns ++;
+                }
+            }
+        }
+
+        for(MapRegion region : regions){
+            for(int i = 0; i < region.blocks.length; i++){
+                Block block = content.block(region.blocks[i]);
+                int x = region.x + i % region.width, y = region.y + i / region.width;
+
+                //the other tiles of multiblocks are drawn with their center
+                if(block.hasBuilding() && region.teams[i] == -1) continue;
+
+                int c = colorFor(block, Blocks.air, Blocks.air, Team.derelict);
+                if(c != black){
+                    walls.setRaw(x, floors.height - 1 - y, c);
+                    floors.set(x, floors.height - 1 - y + 1, shade);
+                }
+
+                if(region.teams[i] != -1){
+                    Team team = Team.get(region.teams[i]);
+                    int offset = -(block.size - 1) / 2;
+                    for(int dx = 0; dx < block.size; dx++){
+                        for(int dy = 0; dy < block.size; dy++){
+                            walls.set(x + dx + offset, floors.height - 1 - (y + dy + offset), team.color.rgba8888());
+                        }
+                    }
+
+                    if(block instanceof CoreBlock){
+                        map.teams.add(team.id);
+                    }
+                }
+            }
+        }
+
+        floors.draw(walls, true);
+        walls.dispose();
+        return floors;
+    }
+
     public static Pixmap generatePreview(Tiles tiles){
         Pixmap pixmap = new Pixmap(tiles.width, tiles.height);
         for(int x = 0; x < pixmap.width; x++){
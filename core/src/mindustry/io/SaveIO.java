@@ -2,6 +2,7 @@ package mindustry.io;
 
 import arc.*;
 import arc.files.*;
+import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
@@ -11,7 +12,9 @@ import mindustry.io.versions.*;
 import mindustry.world.*;
 
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import static mindustry.Vars.*;
@@ -20,7 +23,15 @@ public class SaveIO{
     /** Save format header. */
     public static final byte[] header = {'M', 'S', 'A', 'V'};
     public static final IntMap<SaveVersion> versions = new IntMap<>();
-    public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5(), new Save6(), new Save7());
+    /** Newest version that other clients and servers can read. Always used for network world data. */
+    public static final SaveVersion compatibleVersion = new Save7();
+    /** Stores the map in independently compressed regions, which are encoded and decoded in parallel. */
+    public static final Save8 chunkedVersion = new Save8();
+    public static final Seq<SaveVersion> versionArray = Seq.with(new Save1(), new Save2(), new Save3(), new Save4(), new Save5(), new Save6(), compatibleVersion, chunkedVersion);
+    /** Whether save and map files are written with {@link #chunkedVersion}. Off by default, as these files cannot be read elsewhere. */
+    public static boolean writeChunked = false;
+    /** Compresses and writes captured saves one at a time, so that saves to the same file always land in order. */
+    private static final ExecutorService writer = Threads.executor("Save Writer", 1);
 
     static{
         for(SaveVersion version : versionArray){
@@ -29,7 +40,7 @@ public class SaveIO{
     }
 
     public static SaveVersion getSaveWriter(){
-        return versionArray.peek();
+        return compatibleVersion;
     }
 
     public static SaveVersion getSaveWriter(int version){
@@ -37,6 +48,8 @@ public class SaveIO{
     }
 
     public static void save(Fi file){
+        awaitSaves();
+
         boolean exists = file.exists();
         if(exists) file.moveTo(backupFileFor(file));
         try{
@@ -47,16 +60,104 @@ public class SaveIO{
         }
     }
 
+    /**
+     * Captures the game state on this thread, then compresses and writes it to the file in the background.
+     * Only serialization happens here; it is much cheaper than compression and disk access.
+     */
+    public static void saveAsync(Fi file, @Nullable Runnable done, @Nullable Cons<Throwable> failed){
+        saveAsync(file, capture(), done, failed);
+    }
+
+    /**
+     * Writes a captured save to a file in the background. The file is only replaced once the new data is complete,
+     * and the previous version is kept as a backup. Callbacks are run on the main thread.
+     */
+    public static void saveAsync(Fi file, SaveSnapshot snapshot, @Nullable Runnable done, @Nullable Cons<Throwable> failed){
+        writer.submit(() -> {
+            try{
+                writeSnapshot(file, snapshot);
+                if(done != null) Core.app.post(done);
+            }catch(Throwable e){
+                if(failed != null){
+                    Core.app.post(() -> failed.get(e));
+                }else{
+                    Log.err("Failed to write save to @", file);
+                    Log.err(e);
+                }
+            }
+        });
+    }
+
+    /** Blocks until all saves started with {@link #saveAsync} have been written. */
+    public static void awaitSaves(){
+        try{
+            writer.submit(() -> {}).get();
+        }catch(InterruptedException | ExecutionException e){
+            Log.err(e);
+        }
+    }
+
+    /** Serializes the game state into memory without compressing it. */
+    public static SaveSnapshot capture(){
+        return capture(null);
+    }
+
+    /** Serializes the game state into memory without compressing it. */
+    public static SaveSnapshot capture(@Nullable StringMap tags){
+        ReusableByteOutStream out = new ReusableByteOutStream();
+        write(out, tags);
+        return new SaveSnapshot(out.getBytes(), out.size(), getVersion().deflateFile());
+    }
+
+    static void writeSnapshot(Fi file, SaveSnapshot snapshot) throws IOException{
+        Fi temp = file.sibling(file.name() + ".tmp");
+
+        OutputStream output = temp.write(false, bufferSize);
+        try(OutputStream out = snapshot.deflate ? new FastDeflaterOutputStream(output) : output){
+            out.write(snapshot.bytes, 0, snapshot.length);
+        }catch(Throwable e){
+            temp.delete();
+            throw e;
+        }
+
+        if(file.exists()) file.copyTo(backupFileFor(file));
+
+        //qualified, as arc.Files has the same name
+        Path from = temp.file().toPath(), to = file.file().toPath();
+        try{
+            java.nio.file.Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch(AtomicMoveNotSupportedException e){
+            java.nio.file.Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Opens a save or map file for reading. Most versions are compressed as a whole, and are inflated here;
+     * files of versions that are not (see {@link SaveVersion#deflateFile()}) start with the plain header, and are read as they are.
+     */
+    public static InputStream openStream(Fi file){
+        BufferedInputStream stream = file.read(bufferSize);
+        try{
+            stream.mark(1);
+            int first = stream.read();
+            stream.reset();
+            return first == header[0] ? stream : new InflaterInputStream(stream);
+        }catch(IOException e){
+            Streams.close(stream);
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static DataInputStream getStream(Fi file){
-        return new DataInputStream(new InflaterInputStream(file.read(bufferSize)));
+        return new DataInputStream(openStream(file));
     }
 
     public static DataInputStream getBackupStream(Fi file){
-        return new DataInputStream(new InflaterInputStream(backupFileFor(file).read(bufferSize)));
+        return new DataInputStream(openStream(backupFileFor(file)));
     }
 
     public static boolean isSaveValid(Fi file){
-        try(DataInputStream stream = new DataInputStream(new InflaterInputStream(file.read(bufferSize)))){
+        try(DataInputStream stream = getStream(file)){
             return isSaveValid(stream);
         }catch(Throwable e){
             return false;
@@ -107,7 +208,8 @@ public class SaveIO{
     }
 
     public static void write(Fi file, StringMap tags){
-        write(new FastDeflaterOutputStream(file.write(false, bufferSize)), tags);
+        OutputStream out = file.write(false, bufferSize);
+        write(getVersion().deflateFile() ? new FastDeflaterOutputStream(out) : out, tags);
     }
 
     public static void write(Fi file){
@@ -140,21 +242,23 @@ public class SaveIO{
     }
 
     public static void load(Fi file, WorldContext context) throws SaveException{
+        awaitSaves();
+
         try{
             //try and load; if any exception at all occurs
-            load(new InflaterInputStream(file.read(bufferSize)), context);
+            load(openStream(file), context);
         }catch(SaveException e){
             Log.err(e);
             Fi backup = file.sibling(file.name() + "-backup." + file.extension());
             if(backup.exists()){
-                load(new InflaterInputStream(backup.read(bufferSize)), context);
+                load(openStream(backup), context);
             }else{
                 throw new SaveException(e.getCause());
             }
         }
     }
 
-    /** Loads from a deflated (!) input stream. */
+    /** Loads from an inflated input stream, see {@link #openStream(Fi)}. */
     public static void load(InputStream is, WorldContext context) throws SaveException{
         try(CounterInputStream counter = new CounterInputStream(is); DataInputStream stream = new DataInputStream(counter)){
             logic.reset();
@@ -175,7 +279,7 @@ public class SaveIO{
     }
 
     public static SaveVersion getVersion(){
-        return versionArray.peek();
+        return writeChunked ? chunkedVersion : compatibleVersion;
     }
 
     public static void readHeader(DataInput input) throws IOException{
@@ -186,6 +290,24 @@ public class SaveIO{
         }
     }
 
+    /** Uncompressed save data, captured at a single point in time. */
+    public static class SaveSnapshot{
+        public final byte[] bytes;
+        public final int length;
+        /** Whether the file is compressed as a whole when written. */
+        public final boolean deflate;
+
+        public SaveSnapshot(byte[] bytes, int length, boolean deflate){
+            this.bytes = bytes;
+            this.length = length;
+            this.deflate = deflate;
+        }
+
+        public DataInputStream stream(){
+            return new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
+        }
+    }
+
     public static class SaveException extends RuntimeException{
         public SaveException(Throwable throwable){
             super(throwable);
@@ -61,6 +61,11 @@ public abstract class SaveVersion extends SaveFileReader{
         );
     }
 
+    /** @return whether files of this version are compressed as a whole. Versions that return false compress their own parts. */
+    public boolean deflateFile(){
+        return true;
+    }
+
     @Override
     public final void write(DataOutputStream stream) throws IOException{
         write(stream, new StringMap());
@@ -192,17 +197,17 @@ public abstract class SaveVersion extends SaveFileReader{
         stream.writeShort(world.width());
         stream.writeShort(world.height());
 
-        //floor + overlay
+        //floor + overlay, scanned from the flat ID arrays instead of the tiles
+        short[] floors = world.tiles.floorIds(), overlays = world.tiles.overlayIds(), blocks = world.tiles.blockIds();
+
         for(int i = 0; i < world.width() * world.height(); i++){
-            Tile tile = world.rawTile(i % world.width(), i / world.width());
-            stream.writeShort(tile.floorID());
-            stream.writeShort(tile.overlayID());
+            short floor = floors[i], overlay = overlays[i];
+            stream.writeShort(floor);
+            stream.writeShort(overlay);
             int consecutives = 0;
 
             for(int j = i + 1; j < world.width() * world.height() && consecutives < 255; j++){
-                Tile nextTile = world.rawTile(j % world.width(), j / world.width());
-
-                if(nextTile.floorID() != tile.floorID() || nextTile.overlayID() != tile.overlayID()){
+                if(floors[j] != floor || overlays[j] != overlay){
                     break;
                 }
 
@@ -242,9 +247,7 @@ public abstract class SaveVersion extends SaveFileReader{
                 int consecutives = 0;
 
                 for(int j = i + 1; j < world.width() * world.height() && consecutives < 255; j++){
-                    Tile nextTile = world.rawTile(j % world.width(), j / world.width());
-
-                    if(nextTile.blockID() != tile.blockID()){
+                    if(blocks[j] != blocks[i]){
                         break;
                     }
 
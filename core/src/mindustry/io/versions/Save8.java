@@ -0,0 +1,512 @@
+package mindustry.io.versions;
+
+import arc.files.*;
+import arc.func.*;
+import arc.struct.*;
+import arc.util.io.*;
+import mindustry.content.*;
+import mindustry.io.*;
+import mindustry.world.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Stores the map in square regions that are compressed independently, preceded by an index of their sizes.
+ * Regions are compressed and decompressed in parallel, and any region can be located without decoding the others.
+ * Floors are stored before blocks, as multiblocks may cover tiles in several regions.
+ * The file itself is not compressed, so that regions can be read directly; entities and custom chunks are compressed on their own.
+ */
+public class Save8 extends SaveVersion{
+    /** Width and height of a region, in tiles. */
+    public static final int regionSize = 64;
+
+    public Save8(){
+        super(8);
+    }
+
+    @Override
+    public boolean deflateFile(){
+        return false;
+    }
+
+    @Override
+    public void read(DataInputStream stream, CounterInputStream counter, WorldContext context) throws IOException{
+        region("meta", stream, counter, in -> readMeta(in, context));
+        region("content", stream, counter, this::readContentHeader);
+
+        try{
+            region("map", stream, counter, in -> readMap(in, context));
+            region("entities", stream, counter, in -> readEntities(inflate(in)));
+            region("custom", stream, counter, in -> readCustomChunks(inflate(in)));
+        }finally{
+            content.setTemporaryMapper(null);
+        }
+    }
+
+    @Override
+    public void write(DataOutputStream stream, StringMap extraTags) throws IOException{
+        region("meta", stream, out -> writeMeta(out, extraTags));
+        region("content", stream, this::writeContentHeader);
+        region("map", stream, this::writeMap);
+        region("entities", stream, out -> deflate(out, this::writeEntities));
+        region("custom", stream, out -> deflate(out, s -> writeCustomChunks(s, false)));
+    }
+
+    @Override
+    public void writeMap(DataOutput stream) throws IOException{
+        int width = world.width(), height = world.height();
+        int rw = regions(width), rh = regions(height), regions = rw * rh;
+
+        stream.writeShort(width);
+        stream.writeShort(height);
+        stream.writeShort(regionSize);
+
+        byte[][] floors = new byte[regions][], blocks = new byte[regions][];
+        int[] floorLengths = new int[regions], blockLengths = new int[regions];
+
+        //floors are encoded from the flat ID arrays, which can be read from any thread once created
+        short[] floorIds = world.tiles.floorIds(), overlayIds = world.tiles.overlayIds(), blockIds = world.tiles.blockIds();
+        parallel(regions, r -> {
+            byte[] data = encodeFloors(floorIds, overlayIds, r % rw, r / rw);
+            floorLengths[r] = data.length;
+            floors[r] = compress(data);
+        });
+
+        //buildings are not safe to serialize concurrently, so only their compression is parallel
+        ReusableByteOutStream bytes = new ReusableByteOutStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for(int r = 0; r < regions; r++){
+            bytes.reset();
+            writeBlocks(out, blockIds, r % rw, r / rw);
+            blocks[r] = bytes.toByteArray();
+            blockLengths[r] = blocks[r].length;
+        }
+        parallel(regions, r -> blocks[r] = compress(blocks[r]));
+
+        //index: uncompressed and compressed size of each part of each region
+        for(int r = 0; r < regions; r++){
+            stream.writeInt(floorLengths[r]);
+            stream.writeInt(floors[r].length);
+            stream.writeInt(blockLengths[r]);
+            stream.writeInt(blocks[r].length);
+        }
+
+        for(byte[] data : floors) stream.write(data);
+        for(byte[] data : blocks) stream.write(data);
+    }
+
+    @Override
+    public void readMap(DataInput stream, WorldContext context) throws IOException{
+        int width = stream.readUnsignedShort();
+        int height = stream.readUnsignedShort();
+        int size = stream.readUnsignedShort();
+        int rw = (width + size - 1) / size, rh = (height + size - 1) / size, regions = rw * rh;
+
+        byte[][] floors = new byte[regions][], blocks = new byte[regions][];
+        int[] floorLengths = new int[regions], blockLengths = new int[regions];
+        for(int r = 0; r < regions; r++){
+            floorLengths[r] = stream.readInt();
+            floors[r] = new byte[stream.readInt()];
+            blockLengths[r] = stream.readInt();
+            blocks[r] = new byte[stream.readInt()];
+        }
+        for(byte[] data : floors) stream.readFully(data);
+        for(byte[] data : blocks) stream.readFully(data);
+
+        //decode floors into flat arrays and decompress blocks; only tile creation has to happen on this thread
+        short[] floorIds = new short[width * height], overlayIds = new short[width * height];
+        parallel(regions, r -> {
+            decodeFloors(decompress(floors[r], floorLengths[r]), r % rw, r / rw, size, width, height, floorIds, overlayIds);
+            blocks[r] = decompress(blocks[r], blockLengths[r]);
+        });
+
+        boolean generating = context.isGenerating();
+
+        if(!generating) context.begin();
+        try{
+            context.resize(width, height);
+
+            for(int i = 0; i < width * height; i++){
+                short floorid = floorIds[i];
+                if(content.block(floorid) == Blocks.air) floorid = Blocks.stone.id;
+
+                context.create(i % width, i / width, floorid, overlayIds[i], (short)0);
+            }
+
+            for(int r = 0; r < regions; r++){
+                readBlocks(new DataInputStream(new ByteArrayInputStream(blocks[r])), context, r % rw, r / rw, size, width, height);
+            }
+        }finally{
+            if(!generating) context.end();
+        }
+    }
+
+    byte[] encodeFloors(short[] floors, short[] overlays, int rx, int ry){
+        ReusableByteOutStream bytes = new ReusableByteOutStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int width = world.width(), x0 = rx * regionSize, y0 = ry * regionSize;
+        int w = Math.min(regionSize, width - x0), total = w * Math.min(regionSize, world.height() - y0);
+
+        try{
+            for(int i = 0; i < total; i++){
+                int index = (x0 + i % w) + (y0 + i / w) * width;
+                short floor = floors[index], overlay = overlays[index];
+                out.writeShort(floor);
+                out.writeShort(overlay);
+                int consecutives = 0;
+
+                for(int j = i + 1; j < total && consecutives < 255; j++){
+                    int next = (x0 + j % w) + (y0 + j / w) * width;
+
+                    if(floors[next] != floor || overlays[next] != overlay){
+                        break;
+                    }
+
+                    consecutives++;
+                }
+
+                out.writeByte(consecutives);
+                i += consecutives;
+            }
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    static void decodeFloors(byte[] data, int rx, int ry, int size, int width, int height, short[] floors, short[] overlays){
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int x0 = rx * size, y0 = ry * size;
+        int w = Math.min(size, width - x0), total = w * Math.min(size, height - y0);
+
+        try{
+            for(int i = 0; i < total; i++){
+                short floorid = in.readShort();
+                short oreid = in.readShort();
+                int consecutives = in.readUnsignedByte();
+
+                for(int j = i; j <= i + consecutives; j++){
+                    int index = (x0 + j % w) + (y0 + j / w) * width;
+                    floors[index] = floorid;
+                    overlays[index] = oreid;
+                }
+
+                i += consecutives;
+            }
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void writeBlocks(DataOutput stream, short[] blocks, int rx, int ry) throws IOException{
+        int width = world.width(), x0 = rx * regionSize, y0 = ry * regionSize;
+        int w = Math.min(regionSize, width - x0), total = w * Math.min(regionSize, world.height() - y0);
+
+        for(int i = 0; i < total; i++){
+            Tile tile = world.rawTile(x0 + i % w, y0 + i / w);
+            stream.writeShort(tile.blockID());
+
+            boolean savedata = tile.block().saveData;
+            byte packed = (byte)((tile.build != null ? 1 : 0) | (savedata ? 2 : 0));
+
+            //make note of whether there was an entity/rotation here
+            stream.writeByte(packed);
+
+            //only write the entity for multiblocks once - in the center
+            if(tile.build != null){
+                if(tile.isCenter()){
+                    stream.writeBoolean(true);
+                    writeChunk(stream, true, out -> {
+                        out.writeByte(tile.build.version());
+                        tile.build.writeAll(Writes.get(out));
+                    });
+                }else{
+                    stream.writeBoolean(false);
+                }
+            }else if(savedata){
+                stream.writeByte(tile.data);
+            }else{
+                //write consecutive non-entity blocks
+                int consecutives = 0;
+
+                for(int j = i + 1; j < total && consecutives < 255; j++){
+                    if(blocks[(x0 + j % w) + (y0 + j / w) * width] != tile.blockID()){
+                        break;
+                    }
+
+                    consecutives++;
+                }
+
+                stream.writeByte(consecutives);
+                i += consecutives;
+            }
+        }
+    }
+
+    void readBlocks(DataInput stream, WorldContext context, int rx, int ry, int size, int width, int height) throws IOException{
+        int x0 = rx * size, y0 = ry * size;
+        int w = Math.min(size, width - x0), total = w * Math.min(size, height - y0);
+
+        for(int i = 0; i < total; i++){
+            Block block = content.block(stream.readShort());
+            Tile tile = context.tile((x0 + i % w) + (y0 + i / w) * width);
+            if(block == null) block = Blocks.air;
+            boolean isCenter = true;
+            byte packedCheck = stream.readByte();
+            boolean hadEntity = (packedCheck & 1) != 0;
+            boolean hadData = (packedCheck & 2) != 0;
+
+            if(hadEntity){
+                isCenter = stream.readBoolean();
+            }
+
+            //set block only if this is the center; otherwise, it's handled elsewhere
+            if(isCenter){
+                tile.setBlock(block);
+            }
+
+            if(hadEntity){
+                if(isCenter){ //only read entity for center blocks
+                    if(block.hasBuilding()){
+                        try{
+                            readChunk(stream, true, in -> {
+                                byte revision = in.readByte();
+                                tile.build.readAll(Reads.get(in), revision);
+                            });
+                        }catch(Throwable e){
+                            throw new IOException("Failed to read tile entity of block: " + block, e);
+                        }
+                    }else{
+                        //skip the entity region, as the entity and its IO code are now gone
+                        skipChunk(stream, true);
+                    }
+
+                    context.onReadBuilding();
+                }
+            }else if(hadData){
+                tile.setBlock(block);
+                tile.data = stream.readByte();
+            }else{
+                int consecutives = stream.readUnsignedByte();
+
+                for(int j = i + 1; j < i + 1 + consecutives; j++){
+                    context.tile((x0 + j % w) + (y0 + j / w) * width).setBlock(block);
+                }
+
+                i += consecutives;
+            }
+        }
+    }
+
+    /**
+     * Reads the floors, blocks and building teams of a single region, without loading the map or any buildings.
+     * Only the region itself is decompressed; the rest of the file is skipped.
+     * Returned IDs are already remapped to the current content. Main thread only, as remapping uses the global temporary mapper.
+     */
+    public MapRegion readRegion(Fi file, int rx, int ry) throws IOException{
+        try(DataInputStream stream = new DataInputStream(file.read(bufferSize))){
+            SaveIO.readHeader(stream);
+            int version = stream.readInt();
+            if(version != this.version) throw new IOException("Not a region save. Expected version: " + this.version + "; Actual: " + version);
+
+            skipChunk(stream);
+            readChunk(stream, this::readContentHeader);
+            //length of the map chunk
+            stream.readInt();
+
+            int width = stream.readUnsignedShort();
+            int height = stream.readUnsignedShort();
+            int size = stream.readUnsignedShort();
+            int rw = (width + size - 1) / size, rh = (height + size - 1) / size, target = rx + ry * rw;
+            if(rx < 0 || ry < 0 || rx >= rw || ry >= rh){
+                throw new IllegalArgumentException("Region out of bounds: " + rx + ", " + ry + " (" + rw + "x" + rh + ")");
+            }
+
+            //offsets of the region's floors and blocks, relative to the end of the index
+            long floorOffset = 0, blockOffset = 0;
+            int floorLength = 0, blockLength = 0;
+            byte[] floors = null, blocks = null;
+            for(int r = 0; r < rw * rh; r++){
+                int fl = stream.readInt(), fc = stream.readInt(), bl = stream.readInt(), bc = stream.readInt();
+                if(r < target){
+                    floorOffset += fc;
+                    blockOffset += bc;
+                }else if(r == target){
+                    floorLength = fl;
+                    floors = new byte[fc];
+                    blockLength = bl;
+                    blocks = new byte[bc];
+                }
+                blockOffset += fc;
+            }
+
+            skipFully(stream, floorOffset);
+            stream.readFully(floors);
+            skipFully(stream, blockOffset - floorOffset - floors.length);
+            stream.readFully(blocks);
+
+            int x0 = rx * size, y0 = ry * size;
+            MapRegion region = new MapRegion(x0, y0, Math.min(size, width - x0), Math.min(size, height - y0));
+            decodeFloors(decompress(floors, floorLength), 0, 0, size, region.width, region.height, region.floors, region.overlays);
+            readRegionBlocks(new DataInputStream(new ByteArrayInputStream(decompress(blocks, blockLength))), region);
+
+            for(int i = 0; i < region.floors.length; i++){
+                Block floor = content.block(region.floors[i]), overlay = content.block(region.overlays[i]);
+                region.floors[i] = floor == null || floor == Blocks.air ? Blocks.stone.id : floor.id;
+                region.overlays[i] = overlay == null ? 0 : overlay.id;
+            }
+
+            return region;
+        }finally{
+            content.setTemporaryMapper(null);
+        }
+    }
+
+    /** Reads the blocks of a region like {@link #readBlocks}, but only keeps their IDs and the teams of buildings. */
+    void readRegionBlocks(DataInputStream stream, MapRegion region) throws IOException{
+        int total = region.width * region.height;
+
+        for(int i = 0; i < total; i++){
+            Block block = content.block(stream.readShort());
+            if(block == null) block = Blocks.air;
+            byte packed = stream.readByte();
+            region.blocks[i] = block.id;
+
+            if((packed & 1) != 0){
+                if(stream.readBoolean()){
+                    //building chunk: revision, health, rotation, team
+                    int length = stream.readUnsignedShort();
+                    if(block.hasBuilding() && length >= 7){
+                        skipFully(stream, 6);
+                        region.teams[i] = (short)stream.readUnsignedByte();
+                        length -= 7;
+                    }
+                    skipFully(stream, length);
+                }
+            }else if((packed & 2) != 0){
+                stream.readByte();
+            }else{
+                int consecutives = stream.readUnsignedByte();
+                Arrays.fill(region.blocks, i + 1, i + 1 + consecutives, block.id);
+                i += consecutives;
+            }
+        }
+    }
+
+    /** Writes data compressed, preceded by its uncompressed and compressed length. */
+    static void deflate(DataOutput stream, IORunner<DataOutput> runner) throws IOException{
+        ReusableByteOutStream bytes = new ReusableByteOutStream();
+        runner.accept(new DataOutputStream(bytes));
+        byte[] data = compress(bytes.getBytes(), bytes.size());
+        stream.writeInt(bytes.size());
+        stream.writeInt(data.length);
+        stream.write(data);
+    }
+
+    /** Reads data written by {@link #deflate}. */
+    static DataInput inflate(DataInput stream) throws IOException{
+        int length = stream.readInt();
+        byte[] data = new byte[stream.readInt()];
+        stream.readFully(data);
+        return new DataInputStream(new ByteArrayInputStream(decompress(data, length)));
+    }
+
+    static void skipFully(DataInput stream, long bytes) throws IOException{
+        while(bytes > 0){
+            int skipped = stream.skipBytes((int)Math.min(bytes, Integer.MAX_VALUE));
+            if(skipped <= 0){
+                stream.readByte();
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    /** @return the amount of regions along an axis of this many tiles */
+    public static int regions(int tiles){
+        return (tiles + regionSize - 1) / regionSize;
+    }
+
+    static byte[] compress(byte[] data){
+        return compress(data, data.length);
+    }
+
+    static byte[] compress(byte[] data, int length){
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 16);
+        try(DeflaterOutputStream stream = new DeflaterOutputStream(out, deflater)){
+            stream.write(data, 0, length);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }finally{
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] decompress(byte[] data, int length){
+        Inflater inflater = new Inflater();
+        try{
+            byte[] out = new byte[length];
+            inflater.setInput(data);
+            int read = 0;
+            while(read < length && !inflater.finished()){
+                int count = inflater.inflate(out, read, length - read);
+                if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                read += count;
+            }
+            if(read != length) throw new IOException("Region length mismatch. Expected: " + length + "; Actual: " + read);
+            return out;
+        }catch(IOException | DataFormatException e){
+            throw new UncheckedIOException(e instanceof IOException io ? io : new IOException(e));
+        }finally{
+            inflater.end();
+        }
+    }
+
+    /** Runs tasks for every index on the main executor, and waits for them to finish. */
+    static void parallel(int count, Intc task) throws IOException{
+        ArrayList<Callable<Object>> tasks = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            int index = i;
+            tasks.add(Executors.callable(() -> task.get(index)));
+        }
+
+        try{
+            for(Future<Object> future : mainExecutor.invokeAll(tasks)){
+                future.get();
+            }
+        }catch(InterruptedException e){
+            throw new IOException(e);
+        }catch(ExecutionException e){
+            throw e.getCause() instanceof UncheckedIOException io ? io.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    /** Tiles of one region of a map, read with {@link #readRegion}. Arrays are indexed by {@code x + y * width}, relative to the region. */
+    public static class MapRegion{
+        /** Bottom left tile of the region, and its size. Regions at the edge of the map may be smaller than {@link #regionSize}. */
+        public final int x, y, width, height;
+        public final short[] floors, overlays, blocks;
+        /** Team ID of the building centered on each tile, or -1. */
+        public final short[] teams;
+
+        public MapRegion(int x, int y, int width, int height){
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            floors = new short[width * height];
+            overlays = new short[width * height];
+            blocks = new short[width * height];
+            teams = new short[width * height];
+            Arrays.fill(teams, (short)-1);
+        }
+    }
+}
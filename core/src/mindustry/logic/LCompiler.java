@@ -0,0 +1,380 @@
+package mindustry.logic;
+
+import arc.util.*;
+import mindustry.logic.LExecutor.*;
+
+/**
+ * Rewrites assembled instructions into specialized forms for a single executor.
+ * Operands are bound directly to their {@link Var} objects, and the hottest instructions (set, op, jump) are split
+ * into per-operation classes, so the common path skips both the variable lookup and the generic operation dispatch.
+ * Every rewritten instruction runs with the same semantics, and in the same number of steps, as the original.
+ */
+public class LCompiler{
+
+    /** @return a copy of the instruction array with bindable instructions replaced. Instructions that cannot be specialized are kept as-is. */
+    public static LInstruction[] compile(LExecutor exec, LInstruction[] instructions){
+        LInstruction[] out = new LInstruction[instructions.length];
+        for(int i = 0; i < instructions.length; i++){
+            out[i] = compile(exec, instructions[i]);
+        }
+        return out;
+    }
+
+    static LInstruction compile(LExecutor exec, LInstruction inst){
+        if(inst instanceof SetI i){
+            return new BoundSetI(exec.var(i.from), exec.var(i.to));
+        }else if(inst instanceof OpI i){
+            return compileOp(exec, i);
+        }else if(inst instanceof JumpI i){
+            return compileJump(exec, i);
+        }else if(inst instanceof EndI){
+            return new BoundEndI(exec.counter);
+        }
+        return inst;
+    }
+
+    static LInstruction compileOp(LExecutor exec, OpI i){
+        Var a = exec.var(i.a), b = exec.var(i.b), dest = exec.var(i.dest);
+
+        if(i.op == LogicOp.strictEqual || i.op.objFunction2 != null){
+            return new BoundOpI(i.op, a, b, dest);
+        }else if(i.op.unary){
+            return new UnaryOpI(i.op, a, dest);
+        }
+
+        return switch(i.op){
+            case add -> new AddI(a, b, dest);
+            case sub -> new SubI(a, b, dest);
+            case mul -> new MulI(a, b, dest);
+            case div -> new DivI(a, b, dest);
+            case lessThan -> new LessThanI(a, b, dest);
+            default -> new NumOpI(i.op, a, b, dest);
+        };
+    }
+
+    static LInstruction compileJump(LExecutor exec, JumpI i){
+        if(i.address == -1){
+            return new NoopI();
+        }
+
+        Var counter = exec.counter;
+
+        if(i.op == ConditionOp.always){
+            return new GotoI(counter, i.address);
+        }
+
+        Var a = exec.var(i.value), b = exec.var(i.compare);
+
+        if(i.op == ConditionOp.strictEqual || i.op.objFunction != null){
+            return new BoundJumpI(i.op, a, b, counter, i.address);
+        }
+
+        return switch(i.op){
+            case lessThan -> new JumpLessThanI(a, b, counter, i.address);
+            case greaterThan -> new JumpGreaterThanI(a, b, counter, i.address);
+            default -> new NumJumpI(i.op, a, b, counter, i.address);
+        };
+    }
+
+    //region utility, mirroring the LExecutor accessors
+
+    static boolean invalid(double d){
+        return Double.isNaN(d) || Double.isInfinite(d);
+    }
+
+    static double num(Var v){
+        return v.isobj ? v.objval != null ? 1 : 0 : invalid(v.numval) ? 0 : v.numval;
+    }
+
+    static void setnum(Var v, double value){
+        if(v.constant) return;
+        if(invalid(value)){
+            v.objval = null;
+            v.isobj = true;
+        }else{
+            v.numval = value;
+            v.objval = null;
+            v.isobj = false;
+        }
+    }
+
+    //endregion
+    //region instructions
+
+    public static class BoundSetI implements LInstruction{
+        final Var from, to;
+
+        BoundSetI(Var from, Var to){
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(!to.constant){
+                if(from.isobj){
+                    to.objval = from.objval;
+                    to.isobj = true;
+                }else{
+                    to.numval = invalid(from.numval) ? 0 : from.numval;
+                    to.isobj = false;
+                }
+            }
+        }
+    }
+
+    public static class BoundEndI implements LInstruction{
+        final Var counter;
+
+        BoundEndI(Var counter){
+            this.counter = counter;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            counter.numval = exec.instructions.length;
+        }
+    }
+
+    /** Operations that may compare objects. */
+    public static class BoundOpI implements LInstruction{
+        final LogicOp op;
+        final Var a, b, dest;
+
+        BoundOpI(LogicOp op, Var a, Var b, Var dest){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(op == LogicOp.strictEqual){
+                setnum(dest, a.isobj == b.isobj && ((a.isobj && Structs.eq(a.objval, b.objval)) || (!a.isobj && a.numval == b.numval)) ? 1 : 0);
+            }else if(a.isobj && b.isobj){
+                setnum(dest, op.objFunction2.get(a.objval, b.objval));
+            }else{
+                setnum(dest, op.function2.get(num(a), num(b)));
+            }
+        }
+    }
+
+    public static class UnaryOpI implements LInstruction{
+        final LogicOp op;
+        final Var a, dest;
+
+        UnaryOpI(LogicOp op, Var a, Var dest){
+            this.op = op;
+            this.a = a;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, op.function1.get(num(a)));
+        }
+    }
+
+    /** Binary operations that only ever work on numbers. */
+    public static class NumOpI implements LInstruction{
+        final LogicOp op;
+        final Var a, b, dest;
+
+        NumOpI(LogicOp op, Var a, Var b, Var dest){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, op.function2.get(num(a), num(b)));
+        }
+    }
+
+    public static class AddI implements LInstruction{
+        final Var a, b, dest;
+
+        AddI(Var a, Var b, Var dest){
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, num(a) + num(b));
+        }
+    }
+
+    public static class SubI implements LInstruction{
+        final Var a, b, dest;
+
+        SubI(Var a, Var b, Var dest){
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, num(a) - num(b));
+        }
+    }
+
+    public static class MulI implements LInstruction{
+        final Var a, b, dest;
+
+        MulI(Var a, Var b, Var dest){
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, num(a) * num(b));
+        }
+    }
+
+    public static class DivI implements LInstruction{
+        final Var a, b, dest;
+
+        DivI(Var a, Var b, Var dest){
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, num(a) / num(b));
+        }
+    }
+
+    public static class LessThanI implements LInstruction{
+        final Var a, b, dest;
+
+        LessThanI(Var a, Var b, Var dest){
+            this.a = a;
+            this.b = b;
+            this.dest = dest;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            setnum(dest, num(a) < num(b) ? 1 : 0);
+        }
+    }
+
+    public static class GotoI implements LInstruction{
+        final Var counter;
+        final int address;
+
+        GotoI(Var counter, int address){
+            this.counter = counter;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            counter.numval = address;
+        }
+    }
+
+    /** Conditions that may compare objects. */
+    public static class BoundJumpI implements LInstruction{
+        final ConditionOp op;
+        final Var a, b, counter;
+        final int address;
+
+        BoundJumpI(ConditionOp op, Var a, Var b, Var counter, int address){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.counter = counter;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            boolean cmp;
+
+            if(op == ConditionOp.strictEqual){
+                cmp = a.isobj == b.isobj && ((a.isobj && a.objval == b.objval) || (!a.isobj && a.numval == b.numval));
+            }else if(a.isobj && b.isobj){
+                cmp = op.objFunction.get(a.objval, b.objval);
+            }else{
+                cmp = op.function.get(num(a), num(b));
+            }
+
+            if(cmp){
+                counter.numval = address;
+            }
+        }
+    }
+
+    /** Conditions that only ever work on numbers. */
+    public static class NumJumpI implements LInstruction{
+        final ConditionOp op;
+        final Var a, b, counter;
+        final int address;
+
+        NumJumpI(ConditionOp op, Var a, Var b, Var counter, int address){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.counter = counter;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(op.function.get(num(a), num(b))){
+                counter.numval = address;
+            }
+        }
+    }
+
+    public static class JumpLessThanI implements LInstruction{
+        final Var a, b, counter;
+        final int address;
+
+        JumpLessThanI(Var a, Var b, Var counter, int address){
+            this.a = a;
+            this.b = b;
+            this.counter = counter;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(num(a) < num(b)){
+                counter.numval = address;
+            }
+        }
+    }
+
+    public static class JumpGreaterThanI implements LInstruction{
+        final Var a, b, counter;
+        final int address;
+
+        JumpGreaterThanI(Var a, Var b, Var counter, int address){
+            this.a = a;
+            this.b = b;
+            this.counter = counter;
+            this.address = address;
+        }
+
+        @Override
+        public void run(LExecutor exec){
+            if(num(a) > num(b)){
+                counter.numval = address;
+            }
+        }
+    }
+
+    //endregion
+}
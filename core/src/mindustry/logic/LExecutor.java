@@ -45,6 +45,9 @@ public class LExecutor{
     maxDisplayBuffer = 1024,
     maxTextBuffer = 400;
 
+    /** If true, loaded programs are rewritten by {@link LCompiler} into instructions bound to this executor's variables. */
+    public static boolean compile = true;
+
     public LInstruction[] instructions = {};
     public Var[] vars = {};
     public Var counter;
@@ -111,6 +114,10 @@ public class LExecutor{
         });
 
         counter = vars[varCounter];
+
+        if(compile){
+            instructions = LCompiler.compile(this, instructions);
+        }
     }
 
     //region utility
@@ -0,0 +1,92 @@
+package mindustry.logic;
+
+import arc.struct.*;
+import mindustry.net.Administration.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
+
+/**
+ * Runs processor instructions under a global per-tick budget.
+ * Without a budget, processors run their instructions immediately in their own update, as they always have.
+ * With one, processors only queue themselves during the update, and everything is executed here afterwards:
+ * privileged processors first, then every other processor with an equal share of what is left.
+ * Processors that did not get all of their instructions keep their accumulated credit for the next tick.
+ */
+public class LogicScheduler{
+    private final Seq<LogicBuild> privileged = new Seq<>(false, 16), normal = new Seq<>(false, 64);
+    private int budget, offset;
+
+    /** Instructions executed by queued processors during the last tick. */
+    public int lastExecuted;
+    /** Amount of processors that did not get all of their instructions during the last tick. */
+    public int lastThrottled;
+
+    /** @return whether processors must queue themselves instead of running directly. */
+    public boolean budgeted(){
+        return budget > 0;
+    }
+
+    /** @return the maximum amount of instructions executed per tick, or 0 if unlimited. */
+    public int budget(){
+        return budget;
+    }
+
+    /** Queues a processor to run its accumulated instructions at the end of this tick. */
+    public void schedule(LogicBuild build){
+        (build.block.privileged ? privileged : normal).add(build);
+    }
+
+    /** Runs all queued processors. Called once per tick, after all buildings have updated. */
+    public void update(){
+        lastExecuted = 0;
+        lastThrottled = 0;
+
+        int remaining = budget;
+
+        //world processors are part of the map, so they are never throttled
+        for(int i = 0; i < privileged.size; i++){
+            LogicBuild build = privileged.get(i);
+            if(build.isValid()){
+                int ran = build.runInstructions(Integer.MAX_VALUE);
+                remaining -= ran;
+                lastExecuted += ran;
+            }
+        }
+
+        if(normal.size > 0){
+            //rotate the starting point, so that leftover instructions are not always handed to the same processors
+            int size = normal.size, start = offset++ % size;
+            int share = Math.max(remaining, 0) / size;
+
+            //first pass: everyone gets up to an equal share
+            for(int i = 0; i < size; i++){
+                LogicBuild build = normal.get((start + i) % size);
+                if(build.isValid()){
+                    int ran = build.runInstructions(share);
+                    remaining -= ran;
+                    lastExecuted += ran;
+                }
+            }
+
+            //second pass: hand out whatever processors with less demand than their share left unused
+            for(int i = 0; i < size; i++){
+                LogicBuild build = normal.get((start + i) % size);
+                if(!build.isValid()) continue;
+
+                if(remaining > 0){
+                    int ran = build.runInstructions(remaining);
+                    remaining -= ran;
+                    lastExecuted += ran;
+                }
+
+                if(build.pendingInstructions() > 0){
+                    lastThrottled ++;
+                }
+            }
+        }
+
+        privileged.clear();
+        normal.clear();
+
+        budget = Math.max(Config.logicBudget.num(), 0);
+    }
+}
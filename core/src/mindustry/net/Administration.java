@@ -9,6 +9,7 @@ import arc.util.pooling.Pool.*;
 import arc.util.pooling.*;
 import mindustry.*;
 import mindustry.gen.*;
+import mindustry.io.*;
 import mindustry.type.*;
 import mindustry.world.*;
 import mindustry.world.blocks.payloads.*;
@@ -510,9 +511,17 @@ public class Administration{
         motd = new Config("motd", "The message displayed to people on connection.", "off"),
         autosave = new Config("autosave", "Whether the periodically save the map when playing.", false),
         autosaveAmount = new Config("autosaveAmount", "The maximum amount of autosaves. Older ones get replaced.", 10),
+        chunkedSaves = new Config("chunkedSaves", "Whether saves are written in a region-based format that loads faster, but cannot be read by other servers or clients.", false, () -> SaveIO.writeChunked = Config.chunkedSaves.bool()),
+        tickProfiler = new Config("tickProfiler", "Whether the time spent in each part of the game tick is measured. See the 'profile' command.", false, () -> profiler.enabled = Config.tickProfiler.bool()),
         autosaveSpacing = new Config("autosaveSpacing", "Spacing between autosaves in seconds.", 60 * 5),
         debug = new Config("debug", "Enable debug logging.", false, () -> Log.level = debug() ? LogLevel.debug : LogLevel.info),
         snapshotInterval = new Config("snapshotInterval", "Client entity snapshot interval in ms.", 200),
+        snapshotDelta = new Config("snapshotDelta", "Whether entities and blocks that have not changed are left out of snapshots.", true),
+        snapshotInterest = new Config("snapshotInterest", "Whether units far away from a player's view and cores are synced less often.", true),
+        snapshotThreads = new Config("snapshotThreads", "Whether entity snapshots for different players are assembled on multiple threads.", true),
+        snapshotRefresh = new Config("snapshotRefresh", "How often unchanged entities are sent anyway, in entity snapshots.", 10),
+        blockSnapshotRefresh = new Config("blockSnapshotRefresh", "How often unchanged blocks are sent anyway, in block snapshots. Block snapshots are sent every 6 seconds, so a block whose snapshot was lost can stay out of date for this many times as long.", 2),
+        logicBudget = new Config("logicBudget", "Maximum amount of processor instructions executed per tick across the whole map. 0 to disable.", 0),
         autoPause = new Config("autoPause", "Whether the game should pause when nobody is online.", false),
         roundExtraTime = new Config("roundExtraTime", "Time before loading a new map after the gameover, in seconds.", 12),
         maxLogLength = new Config("maxLogLength", "The Maximum log file size, in bytes.", 1024 * 1024 * 5);
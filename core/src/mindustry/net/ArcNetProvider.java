@@ -36,6 +36,10 @@ public class ArcNetProvider implements NetProvider{
     private static final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
     private static final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
 
+    /** Serializer used to encode broadcast packets once, before they are copied to each connection. */
+    final PacketSerializer broadcastSerializer = new PacketSerializer();
+    final ThreadLocal<ByteBuffer> broadcastBuffer = Threads.local(() -> ByteBuffer.allocate(32768));
+
     private volatile int playerLimitCache, packetSpamLimit;
 
     public ArcNetProvider(){
@@ -291,6 +295,52 @@ public class ArcNetProvider implements NetProvider{
         return connections;
     }
 
+    @Override
+    public void sendAll(Object object, boolean reliable, @Nullable NetConnection except){
+        //framework messages are never broadcast, and a lone receiver gains nothing from encoding ahead of time
+        if(!(object instanceof Packet) || connections.size() <= 1){
+            NetProvider.super.sendAll(object, reliable, except);
+            return;
+        }
+
+        //serialize and compress once; connections copy the result into their own write buffers while sending
+        ByteBuffer encoded = broadcastBuffer.get();
+        encoded.clear();
+        try{
+            broadcastSerializer.write(encoded, object);
+        }catch(BufferOverflowException | BufferUnderflowException e){
+            Log.err(e);
+            return;
+        }
+        encoded.flip();
+
+        for(ArcConnection con : connections){
+            if(con != except){
+                //each connection gets its own read-only view, so positions never interfere
+                con.send(encoded.asReadOnlyBuffer(), reliable);
+            }
+        }
+    }
+
+    @Override
+    public Object encode(Packet packet){
+        ByteBuffer buffer = broadcastBuffer.get();
+        buffer.clear();
+        try{
+            broadcastSerializer.write(buffer, packet);
+        }catch(BufferOverflowException | BufferUnderflowException e){
+            //too large to encode ahead of time; the connection serializes it as usual
+            return packet;
+        }
+        buffer.flip();
+
+        //the encoded packet is kept until it is sent, so it can't stay in the shared buffer
+        ByteBuffer encoded = ByteBuffer.allocate(buffer.remaining());
+        encoded.put(buffer);
+        encoded.flip();
+        return encoded;
+    }
+
     @Override
     public void hostServer(int port) throws IOException{
         connections.clear();
@@ -39,6 +39,9 @@ public class Net{
 
     private final NetProvider provider;
 
+    /** If set, everything received by the server is recorded. */
+    public @Nullable ServerRecorder recorder;
+
     static{
         registerPacket(StreamBegin::new);
         registerPacket(StreamChunk::new);
@@ -224,21 +227,23 @@ public class Net{
     /** Send an object to all connected clients, or to the server if this is a client.*/
     public void send(Object object, boolean reliable){
         if(server){
-            for(NetConnection con : provider.getConnections()){
-                con.send(object, reliable);
-            }
+            provider.sendAll(object, reliable, null);
         }else{
             provider.sendClient(object, reliable);
         }
     }
 
+    /**
+     * Serializes a packet ahead of time, so that sending it later with {@link NetConnection#send(Object, boolean)} does no more encoding work.
+     * The result can only be sent once. May be called from any thread.
+     */
+    public Object encode(Packet packet){
+        return provider == null ? packet : provider.encode(packet);
+    }
+
     /** Send an object to everyone EXCEPT a certain client. Server-side only.*/
     public void sendExcept(NetConnection except, Object object, boolean reliable){
-        for(NetConnection con : getConnections()){
-            if(con != except){
-                con.send(object, reliable);
-            }
-        }
+        provider.sendAll(object, reliable, except);
     }
 
     public @Nullable StreamBuilder getCurrentStream(){
@@ -311,6 +316,10 @@ public class Net{
     public void handleServerReceived(NetConnection connection, Packet object){
         object.handled();
 
+        if(recorder != null){
+            recorder.received(connection, object);
+        }
+
         try{
             //handle object normally
             if(serverListeners.get(object.getClass()) != null){
@@ -400,6 +409,26 @@ public class Net{
         /** Close the server connection. */
         void closeServer();
 
+        /**
+         * Send an object to every connection except {@code except}, which may be null.
+         * Implementations may override this to encode the object once for all receivers.
+         */
+        default void sendAll(Object object, boolean reliable, @Nullable NetConnection except){
+            for(NetConnection con : getConnections()){
+                if(con != except){
+                    con.send(object, reliable);
+                }
+            }
+        }
+
+        /**
+         * Serializes a packet ahead of time, in a form that connections of this provider can send.
+         * Implementations that can't do this return the packet itself. May be called from any thread.
+         */
+        default Object encode(Packet packet){
+            return packet;
+        }
+
         /** Close all connections. */
         default void dispose(){
             disconnectClient();
@@ -27,6 +27,8 @@ public abstract class NetConnection{
     public int snapshotsSent;
     /** Timestamp of last received snapshot. */
     public long lastReceivedClientTime;
+    /** Entity state last sent to this connection. */
+    public SnapshotBaseline entityBaseline = new SnapshotBaseline();
     /** Build requests that have been recently rejected. This is cleared every snapshot. */
     public Seq<BuildPlan> rejectedRequests = new Seq<>();
     /** Handles chat spam rate limits. */
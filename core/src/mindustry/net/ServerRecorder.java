@@ -0,0 +1,130 @@
+package mindustry.net;
+
+import arc.files.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import mindustry.io.*;
+import mindustry.logic.*;
+import mindustry.net.Packets.*;
+
+import java.io.*;
+
+import static mindustry.Vars.*;
+
+/**
+ * Records everything a server receives from its clients, and the delta of every tick, starting from a save of the current game.
+ * Replaying a recording on a headless server reproduces the game without any real clients.
+ * <p>
+ * Format: header, version, random seeds and the compressed save, followed by entries that each start with their type:
+ * <ul>
+ *     <li>{@link #entryTick}: the tick delta</li>
+ *     <li>{@link #entryConnect}: connection ID and address</li>
+ *     <li>{@link #entryPacket}: connection ID, packet ID, length and packet data</li>
+ *     <li>{@link #entryDisconnect}: connection ID and reason</li>
+ * </ul>
+ * Received packets are recorded in the order they are handled, and belong before the next tick entry.
+ */
+public class ServerRecorder implements Closeable{
+    public static final byte[] header = {'M', 'R', 'E', 'C'};
+    public static final int version = 1;
+    public static final byte entryTick = 0, entryConnect = 1, entryPacket = 2, entryDisconnect = 3;
+
+    private final DataOutputStream out;
+    private final ObjectIntMap<NetConnection> connections = new ObjectIntMap<>();
+    private final ReusableByteOutStream packetBytes = new ReusableByteOutStream();
+    private final Writes packetWrites = new Writes(new DataOutputStream(packetBytes));
+    private int lastConnection;
+    private long ticks;
+
+    /** Starts a recording of the current game. Main thread only. */
+    public ServerRecorder(Fi file) throws IOException{
+        ReusableByteOutStream save = new ReusableByteOutStream();
+        SaveIO.write(new FastDeflaterOutputStream(save), null);
+
+        out = new DataOutputStream(new FastDeflaterOutputStream(file.write(false, bufferSize)));
+        out.write(header);
+        out.writeInt(version);
+        out.writeLong(Mathf.rand.seed0);
+        out.writeLong(Mathf.rand.seed1);
+        out.writeLong(GlobalVars.rand.seed0);
+        out.writeLong(GlobalVars.rand.seed1);
+        out.writeInt(save.size());
+        out.write(save.getBytes(), 0, save.size());
+    }
+
+    /** @return how many ticks have been recorded. */
+    public long ticks(){
+        return ticks;
+    }
+
+    public void tick(float delta){
+        try{
+            out.writeByte(entryTick);
+            out.writeFloat(delta);
+            ticks ++;
+        }catch(IOException e){
+            fail(e);
+        }
+    }
+
+    /** Records a packet that is about to be handled by the server. */
+    public void received(NetConnection con, Packet packet){
+        try{
+            if(packet instanceof Connect c){
+                int id = ++lastConnection;
+                connections.put(con, id);
+                out.writeByte(entryConnect);
+                out.writeInt(id);
+                out.writeUTF(c.addressTCP);
+                return;
+            }
+
+            //connections that were already open when the recording started cannot be replayed
+            int id = connections.get(con, -1);
+            if(id == -1) return;
+
+            if(packet instanceof Disconnect d){
+                connections.remove(con, -1);
+                out.writeByte(entryDisconnect);
+                out.writeInt(id);
+                out.writeUTF(d.reason == null ? "" : d.reason);
+                return;
+            }
+
+            packetBytes.reset();
+            packet.write(packetWrites);
+
+            out.writeByte(entryPacket);
+            out.writeInt(id);
+            out.writeByte(Net.getPacketId(packet));
+            out.writeInt(packetBytes.size());
+            out.write(packetBytes.getBytes(), 0, packetBytes.size());
+        }catch(IOException e){
+            fail(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(net.recorder == this){
+            net.recorder = null;
+        }
+        out.close();
+    }
+
+    /** Stops recording after a write error. The game goes on; only the recording is lost. */
+    private void fail(IOException e){
+        Log.err("Server recording failed; recording stopped.");
+        Log.err(e);
+
+        if(net.recorder == this){
+            net.recorder = null;
+        }
+        try{
+            out.close();
+        }catch(IOException ignored){
+        }
+    }
+}
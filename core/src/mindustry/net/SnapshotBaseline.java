@@ -0,0 +1,80 @@
+package mindustry.net;
+
+import arc.struct.*;
+import mindustry.net.Administration.*;
+
+/**
+ * Remembers the state that was last sent in snapshots, so that entities and blocks that have not changed can be left out.
+ * Snapshots are unreliable and never acknowledged, so everything is sent again every few snapshots to recover from lost packets.
+ */
+public class SnapshotBaseline{
+    /** How many times identical state is sent before it is skipped. Clients need two identical updates to stop interpolating. */
+    static final int stableSends = 2;
+
+    /** id -> hash of the last sent state */
+    private final IntIntMap hashes = new IntIntMap();
+    /** id -> how many times in a row that state was sent */
+    private final IntIntMap sends = new IntIntMap();
+    /** How many snapshots pass between full snapshots. */
+    private final Config refresh;
+    private int snapshots;
+    private boolean full;
+
+    public SnapshotBaseline(){
+        this(Config.snapshotRefresh);
+    }
+
+    public SnapshotBaseline(Config refresh){
+        this.refresh = refresh;
+    }
+
+    /** Called before writing each snapshot. */
+    public void begin(){
+        full = snapshots == 0;
+        snapshots = (snapshots + 1) % Math.max(refresh.num(), 1);
+
+        if(full){
+            //also removes entries of entities that no longer exist
+            hashes.clear();
+            sends.clear();
+        }
+    }
+
+    /** @return whether the serialized state of an entity or block needs to be sent. */
+    public boolean changed(int id, byte[] bytes, int length){
+        return changed(id, bytes, 0, length);
+    }
+
+    /** @return whether the serialized state of an entity or block needs to be sent. */
+    public boolean changed(int id, byte[] bytes, int offset, int length){
+        int hash = 1;
+        for(int i = offset; i < offset + length; i++){
+            hash = 31 * hash + bytes[i];
+        }
+
+        if(!full && hashes.containsKey(id) && hashes.get(id) == hash){
+            int count = sends.get(id);
+            if(count >= stableSends) return false;
+            sends.put(id, count + 1);
+            return true;
+        }
+
+        hashes.put(id, hash);
+        sends.put(id, 1);
+        return true;
+    }
+
+    /**
+     * Forgets the last sent state of an entity, so that it is sent with the next snapshot it is part of.
+     * Must be called for entities that the client may have removed or stopped tracking.
+     */
+    public void forget(int id){
+        hashes.remove(id, 0);
+        sends.remove(id, 0);
+    }
+
+    /** Forces everything to be sent with the next snapshot. */
+    public void reset(){
+        snapshots = 0;
+    }
+}
@@ -257,6 +257,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
                                     //assign entity and type to blocks, so they act as proxies for this one
                                     other.build = entity;
                                     other.block = block;
+                                    other.idsChanged();
                                 }
                             }
                         }
@@ -268,6 +269,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
             this.block = block;
         }
 
+        idsChanged();
         changed();
         changing = false;
     }
@@ -284,6 +286,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
     public void setFloor(Floor type){
         this.floor = type;
         this.overlay = (Floor)Blocks.air;
+        idsChanged();
 
         if(!headless && !world.isGenerating() && !isEditorTile()){
             renderer.blocks.removeFloorIndex(this);
@@ -295,6 +298,11 @@ public class Tile implements Position, QuadTreeObject, Displayable{
         }
     }
 
+    /** Updates the flat ID arrays and building bits of the world, if they are being kept. */
+    protected void idsChanged(){
+        if(world != null) world.tiles.updateIds(this);
+    }
+
     public boolean isEditorTile(){
         return false;
     }
@@ -396,6 +404,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
 
     public void setOverlay(Block block){
         this.overlay = (Floor)block;
+        idsChanged();
 
         recache();
         if(!world.isGenerating() && build != null){
@@ -406,6 +415,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
     /** Sets the overlay without a recache. */
     public void setOverlayQuiet(Block block){
         this.overlay = (Floor)block;
+        idsChanged();
     }
 
     public void clearOverlay(){
@@ -585,6 +595,7 @@ public class Tile implements Position, QuadTreeObject, Displayable{
 
                                 other.build = null;
                                 other.block = Blocks.air;
+                                other.idsChanged();
 
                                 //manually call changed event
                                 other.fireChanged();
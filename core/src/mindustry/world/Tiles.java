@@ -3,6 +3,7 @@ package mindustry.world;
 import arc.func.*;
 import arc.math.*;
 import arc.math.geom.*;
+import arc.struct.*;
 import arc.util.*;
 
 import java.util.*;
@@ -12,6 +13,10 @@ public class Tiles implements Iterable<Tile>{
     public final int width, height;
 
     final Tile[] array;
+    /** Flat copies of the floor, overlay and block IDs of every tile, indexed like {@link #geti(int)}. Null until requested. */
+    private @Nullable short[] floorIds, overlayIds, blockIds;
+    /** Set for every tile that has a building, kept along with the ID arrays. */
+    private @Nullable Bits buildings;
 
     public Tiles(int width, int height){
         this.array = new Tile[width * height];
@@ -36,12 +41,87 @@ public class Tiles implements Iterable<Tile>{
 
     /** set a tile at a position; does not range-check. use with caution. */
     public void set(int x, int y, Tile tile){
-        array[y*width + x] = tile;
+        seti(y*width + x, tile);
     }
 
     /** set a tile at a raw array position; used for fast iteration / 1-D for-loops */
     public void seti(int i, Tile tile){
         array[i] = tile;
+        if(floorIds != null) writeIds(i, tile);
+    }
+
+    /**
+     * @return the floor ID of every tile, indexed like {@link #geti(int)}.
+     * The first call of any of the ID accessors copies the IDs out of the tiles; afterwards, tiles keep them up to date themselves.
+     * Scanning these arrays is much faster than visiting every tile object. Do not modify.
+     */
+    public short[] floorIds(){
+        trackIds();
+        return floorIds;
+    }
+
+    /** @return the overlay ID of every tile, indexed like {@link #geti(int)}. Do not modify. */
+    public short[] overlayIds(){
+        trackIds();
+        return overlayIds;
+    }
+
+    /** @return the block ID of every tile, indexed like {@link #geti(int)}. Multiblocks are listed on every tile they cover. Do not modify. */
+    public short[] blockIds(){
+        trackIds();
+        return blockIds;
+    }
+
+    /**
+     * @return a bit for every tile, indexed like {@link #geti(int)}, which is set if the tile has a building.
+     * Lets line scans skip empty ground without visiting tile objects. Do not modify.
+     */
+    public Bits buildingBits(){
+        trackIds();
+        return buildings;
+    }
+
+    /** Starts keeping flat ID arrays for all tiles. */
+    public void trackIds(){
+        if(floorIds != null) return;
+
+        short[] floors = new short[array.length], overlays = new short[array.length], blocks = new short[array.length];
+        Bits occupied = new Bits(array.length);
+        for(int i = 0; i < array.length; i++){
+            Tile tile = array[i];
+            if(tile == null) continue;
+            floors[i] = tile.floorID();
+            overlays[i] = tile.overlayID();
+            blocks[i] = tile.blockID();
+            if(tile.build != null) occupied.set(i);
+        }
+
+        buildings = occupied;
+        overlayIds = overlays;
+        blockIds = blocks;
+        floorIds = floors;
+    }
+
+    /** Called by tiles when their floor, overlay, block or building changes. */
+    void updateIds(Tile tile){
+        if(floorIds == null) return;
+
+        int i = tile.y * width + tile.x;
+        //ignore tiles that are not part of this set, such as cached or editor tiles
+        if(tile.x >= 0 && tile.x < width && tile.y >= 0 && tile.y < height && array[i] == tile){
+            writeIds(i, tile);
+        }
+    }
+
+    private void writeIds(int i, Tile tile){
+        floorIds[i] = tile == null ? 0 : tile.floorID();
+        overlayIds[i] = tile == null ? 0 : tile.overlayID();
+        blockIds[i] = tile == null ? 0 : tile.blockID();
+        if(tile != null && tile.build != null){
+            buildings.set(i);
+        }else{
+            buildings.clear(i);
+        }
     }
 
     /** @return whether these coordinates are in bounds */
@@ -232,6 +232,13 @@ public class Turret extends ReloadTurret{
         public float heatReq;
         public float[] sideHeat = new float[4];
 
+        @Override
+        public void created(){
+            super.created();
+            //turrets placed at the same time should not all look for targets on the same tick
+            timer.reset(timerTarget, Mathf.randomSeed(tile.pos(), 0f, targetInterval));
+        }
+
         @Override
         public float estimateDps(){
             if(!hasAmmo()) return 0f;
@@ -568,9 +575,9 @@ public class Turret extends ReloadTurret{
             float range = range();
 
             if(targetAir && !targetGround){
-                target = Units.bestEnemy(team, x, y, range, e -> !e.dead() && !e.isGrounded() && unitFilter.get(e), unitSort);
+                target = TargetCache.bestEnemy(team, x, y, range, e -> !e.dead() && !e.isGrounded() && unitFilter.get(e), unitSort);
             }else{
-                target = Units.bestTarget(team, x, y, range, e -> !e.dead() && unitFilter.get(e) && (e.isGrounded() || targetAir) && (!e.isGrounded() || targetGround), b -> targetGround && buildingFilter.get(b), unitSort);
+                target = TargetCache.bestTarget(team, x, y, range, e -> !e.dead() && unitFilter.get(e) && (e.isGrounded() || targetAir) && (!e.isGrounded() || targetGround), b -> targetGround && buildingFilter.get(b), unitSort);
             }
 
             if(target == null && canHeal()){
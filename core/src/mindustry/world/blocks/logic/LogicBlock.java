@@ -1,6 +1,6 @@
 package mindustry.world.blocks.logic;
 
-import arc.Core;
+import arc.*;
 import arc.Graphics.*;
 import arc.Graphics.Cursor.*;
 import arc.func.*;
@@ -15,6 +15,7 @@ import arc.util.*;
 import arc.util.io.*;
 import mindustry.ai.types.*;
 import mindustry.core.*;
+import mindustry.game.EventType.*;
 import mindustry.gen.*;
 import mindustry.graphics.*;
 import mindustry.io.*;
@@ -35,6 +36,8 @@ import static mindustry.logic.LogicDialog.*;
 
 public class LogicBlock extends Block{
     private static final int maxByteLen = 1024 * 100;
+    /** Processors with an active link to each tile position, so link validity is only rechecked when a linked tile changes. */
+    private static final IntMap<Seq<LogicBuild>> linkWatchers = new IntMap<>();
 
     public int maxInstructionScale = 5;
     public int instructionsPerTick = 1;
@@ -42,6 +45,27 @@ public class LogicBlock extends Block{
     public int maxInstructionsPerTick = 40;
     public float range = 8 * 10;
 
+    //must be static, as there are several processor blocks
+    static{
+        Events.on(TileChangeEvent.class, e -> markLinks(e.tile.pos()));
+        Events.on(BuildTeamChangeEvent.class, e -> {
+            markLinks(e.build.tile.pos());
+            if(e.build instanceof LogicBuild l){
+                l.linksDirty = true;
+            }
+        });
+        Events.on(WorldLoadEvent.class, e -> linkWatchers.clear());
+    }
+
+    static void markLinks(int pos){
+        var watchers = linkWatchers.get(pos);
+        if(watchers != null){
+            for(int i = 0; i < watchers.size; i++){
+                watchers.get(i).linksDirty = true;
+            }
+        }
+    }
+
     public LogicBlock(String name){
         super(name);
         update = true;
@@ -239,6 +263,14 @@ public class LogicBlock extends Block{
         public boolean checkedDuplicates = false;
         //dynamic only for privileged processors
         public int ipt = instructionsPerTick;
+        /** Instructions executed in total, and during the tick with the ID {@link #lastRunTick}. */
+        public long totalInstructions;
+        public int tickInstructions;
+        public long lastRunTick = -1;
+        /** Whether links need to be validated again, because they or one of the tiles they point to changed. */
+        public boolean linksDirty = true;
+        /** Positions this processor is registered to in {@link #linkWatchers}. */
+        IntSeq watchedLinks = new IntSeq();
 
         Table settingTable = new Table();
         boolean showSettingTable = false;
@@ -342,6 +374,8 @@ public class LogicBlock extends Block{
         public void updateCode(String str, boolean keep, Cons<LAssembler> assemble){
             if(str != null){
                 code = str;
+                //links are always modified right before the code is updated
+                linksDirty = true;
 
                 try{
                     //create assembler to store extra variables
@@ -472,6 +506,31 @@ public class LogicBlock extends Block{
                 links.removeAll(removeLinks);
             }
 
+            if(linksDirty){
+                validateLinks();
+            }
+
+            if(!privileged){
+                ipt = instructionsPerTick;
+            }
+
+            if(state.rules.disableWorldProcessors && privileged) return;
+
+            if(enabled && executor.initialized()){
+                accumulator += edelta() * ipt;
+
+                if(accumulator > maxInstructionScale * ipt) accumulator = maxInstructionScale * ipt;
+
+                if(logicScheduler.budgeted()){
+                    logicScheduler.schedule(this);
+                }else{
+                    runInstructions(Integer.MAX_VALUE);
+                }
+            }
+        }
+
+        /** Checks all links for changes in validity, then registers this processor to be notified when any of their tiles change. */
+        public void validateLinks(){
             //check for previously invalid links to add after configuration
             boolean changed = false, updates = true;
 
@@ -513,22 +572,64 @@ public class LogicBlock extends Block{
                 updateCode(code, true, null);
             }
 
-            if(!privileged){
-                ipt = instructionsPerTick;
+            linksDirty = false;
+
+            unwatchLinks();
+            for(int i = 0; i < links.size; i++){
+                LogicLink l = links.get(i);
+                if(!l.active) continue;
+
+                int pos = Point2.pack(l.x, l.y);
+                var watchers = linkWatchers.get(pos);
+                if(watchers == null) linkWatchers.put(pos, watchers = new Seq<>(false, 4));
+                watchers.add(this);
+                watchedLinks.add(pos);
             }
+        }
 
-            if(state.rules.disableWorldProcessors && privileged) return;
+        void unwatchLinks(){
+            for(int i = 0; i < watchedLinks.size; i++){
+                var watchers = linkWatchers.get(watchedLinks.items[i]);
+                if(watchers != null){
+                    watchers.remove(this, true);
+                    if(watchers.isEmpty()){
+                        linkWatchers.remove(watchedLinks.items[i]);
+                    }
+                }
+            }
+            watchedLinks.clear();
+        }
 
-            if(enabled && executor.initialized()){
-                accumulator += edelta() * ipt;
+        @Override
+        public void onRemoved(){
+            super.onRemoved();
+            unwatchLinks();
+        }
 
-                if(accumulator > maxInstructionScale * ipt) accumulator = maxInstructionScale * ipt;
+        /**
+         * Runs accumulated instructions, but no more than {@code max}.
+         * @return the amount of instructions that were executed.
+         */
+        public int runInstructions(int max){
+            int ran = 0;
+            for(int i = 0; i < (int)accumulator && ran < max; i++){
+                executor.runOnce();
+                accumulator --;
+                ran ++;
+            }
 
-                for(int i = 0; i < (int)accumulator; i++){
-                    executor.runOnce();
-                    accumulator --;
-                }
+            if(lastRunTick != state.updateId){
+                lastRunTick = state.updateId;
+                tickInstructions = 0;
             }
+            tickInstructions += ran;
+            totalInstructions += ran;
+            return ran;
+        }
+
+        /** @return how many instructions this processor could still run this tick. */
+        public int pendingInstructions(){
+            return (int)accumulator;
         }
 
         @Override
@@ -93,6 +93,11 @@ public class PowerGraph{
         return lastPowerStored;
     }
 
+    /** Allows {@link #update()} to run again during the current frame. */
+    public void resetFrame(){
+        lastFrameUpdated = -1;
+    }
+
     public void transferPower(float amount){
         if(amount > 0){
             chargeBatteries(amount);
@@ -24,12 +24,15 @@ import mindustry.net.Administration.*;
 import mindustry.net.Packets.*;
 import mindustry.net.*;
 import mindustry.type.*;
+import mindustry.world.*;
+import mindustry.world.blocks.logic.LogicBlock.*;
 
 import java.io.*;
 import java.net.*;
 import java.time.*;
 import java.time.format.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static arc.util.ColorCodes.*;
 import static arc.util.Log.*;
@@ -45,6 +48,7 @@ public class ServerControl implements ApplicationListener{
 
     public final CommandHandler handler = new CommandHandler("");
     public final Fi logFolder = Core.settings.getDataDirectory().child("logs/");
+    public final Fi recordingFolder = Core.settings.getDataDirectory().child("recordings/");
 
     private final Interval autosaveCount = new Interval();
 
@@ -116,6 +120,8 @@ public class ServerControl implements ApplicationListener{
 
         //update log level
         Config.debug.set(Config.debug.bool());
+        SaveIO.writeChunked = Config.chunkedSaves.bool();
+        profiler.enabled = Config.tickProfiler.bool();
 
         try{
             lastMode = Gamemode.valueOf(Core.settings.getString("lastServerMode", "survival"));
@@ -210,6 +216,9 @@ public class ServerControl implements ApplicationListener{
             }
         });
 
+        //recordings start from a save, so they cannot continue on another map
+        Events.on(ResetEvent.class, e -> stopRecording());
+
         //reset autosave on world load
         Events.on(WorldLoadEvent.class, e -> {
             autosaveCount.reset(0, Config.autosaveSpacing.num() * 60);
@@ -240,8 +249,7 @@ public class ServerControl implements ApplicationListener{
                     info("Autosaving...");
 
                     try{
-                        SaveIO.save(file);
-                        info("Autosave completed.");
+                        SaveIO.saveAsync(file, () -> info("Autosave completed."), e -> err("Autosave failed.", e));
                     }catch(Throwable e){
                         err("Autosave failed.", e);
                     }
@@ -338,6 +346,8 @@ public class ServerControl implements ApplicationListener{
         handler.register("exit", "Exit the server application.", arg -> {
             info("Shutting down server.");
             net.dispose();
+            //let autosaves that are still being written finish
+            SaveIO.awaitSaves();
             Core.app.exit();
         });
 
@@ -901,6 +911,124 @@ public class ServerControl implements ApplicationListener{
             }
         });
 
+        handler.register("processors", "[amount]", "List the processors that ran the most instructions during the last tick.", arg -> {
+            if(state.isMenu()){
+                err("Not hosting. Host a game first.");
+                return;
+            }
+
+            if(arg.length > 0 && !Strings.canParseInt(arg[0])){
+                err("Amount must be a number.");
+                return;
+            }
+
+            int amount = arg.length > 0 ? Strings.parseInt(arg[0]) : 10;
+            Seq<LogicBuild> processors = new Seq<>();
+            Groups.build.each(b -> b instanceof LogicBuild, b -> processors.add((LogicBuild)b));
+
+            if(processors.isEmpty()){
+                info("No processors on this map.");
+                return;
+            }
+
+            processors.sort(b -> b.lastRunTick == state.updateId ? -b.tickInstructions : 0);
+
+            info("Processors: @ / Budget: @", processors.size, logicScheduler.budgeted() ? logicScheduler.budget() + " per tick" : "unlimited");
+            if(logicScheduler.budgeted()){
+                info("  Last tick: @ instructions, @ throttled", logicScheduler.lastExecuted, logicScheduler.lastThrottled);
+            }
+            for(int i = 0; i < Math.min(amount, processors.size); i++){
+                LogicBuild b = processors.get(i);
+                info("  &lm@&fr at (@, @) / team @ / @ last tick / @ total", b.block.name, b.tileX(), b.tileY(), b.team.name, b.lastRunTick == state.updateId ? b.tickInstructions : 0, b.totalInstructions);
+            }
+        });
+
+        handler.register("record", "<start/stop>", "Record everything clients send, so that the game can be replayed headlessly.", arg -> {
+            if(arg[0].equals("start")){
+                if(!state.is(State.playing)){
+                    err("Not hosting. Host a game first.");
+                    return;
+                }
+
+                if(net.recorder != null){
+                    err("Already recording.");
+                    return;
+                }
+
+                Fi file = recordingFolder.child(autosaveDate.format(LocalDateTime.now()) + ".mrec");
+                try{
+                    net.recorder = new ServerRecorder(file);
+                    info("Recording to @. Players that are already connected are not recorded.", file.absolutePath());
+                }catch(IOException e){
+                    err("Failed to start recording.", e);
+                }
+            }else if(arg[0].equals("stop")){
+                if(net.recorder == null){
+                    err("Not recording.");
+                    return;
+                }
+
+                stopRecording();
+            }else{
+                err("Invalid argument. Usage: record <start/stop>");
+            }
+        });
+
+        handler.register("profile", "[on/off/reset/blocks] [amount]", "Show how long each part of the game tick takes, or the blocks that take the longest to update.", arg -> {
+            if(arg.length > 0 && (arg[0].equals("on") || arg[0].equals("off"))){
+                Config.tickProfiler.set(arg[0].equals("on"));
+                info("Tick profiler @.", profiler.enabled ? "enabled" : "disabled");
+                return;
+            }
+
+            if(arg.length > 0 && arg[0].equals("reset")){
+                profiler.reset();
+                info("Tick profile reset.");
+                return;
+            }
+
+            if(!profiler.enabled && profiler.count(TickProfiler.logic) == 0){
+                info("The tick profiler is disabled. Enable it with 'profile on'.");
+                return;
+            }
+
+            //the game tick, and the snapshots sent after it
+            long tickTime = profiler.total(TickProfiler.logic) + profiler.total(TickProfiler.entitySync) + profiler.total(TickProfiler.blockSync) + profiler.total(TickProfiler.healthSync);
+
+            if(arg.length > 0 && arg[0].equals("blocks")){
+                if(arg.length > 1 && !Strings.canParseInt(arg[1])){
+                    err("Amount must be a number.");
+                    return;
+                }
+
+                int amount = arg.length > 1 ? Strings.parseInt(arg[1]) : 10;
+                Seq<Block> blocks = content.blocks().select(b -> profiler.blockCount(b) > 0);
+                blocks.sort(b -> -profiler.blockTotal(b));
+
+                info("Block updates over @ ticks:", profiler.count(TickProfiler.logic));
+                for(int i = 0; i < Math.min(amount, blocks.size); i++){
+                    Block block = blocks.get(i);
+                    long total = profiler.blockTotal(block), count = profiler.blockCount(block);
+                    info("  &lm@&fr: @ ms / @% / @ updates / @ us avg", block.name, Strings.fixed(total / 1e6f, 1), percent(total, tickTime), count, Strings.fixed(total / 1e3f / count, 2));
+                }
+                return;
+            }
+
+            if(arg.length > 0){
+                err("Invalid argument. Usage: profile [on/off/reset/blocks] [amount]");
+                return;
+            }
+
+            info("Tick profile over @ ticks@ (last @ ticks for percentiles):", profiler.count(TickProfiler.logic), profiler.enabled ? "" : ", disabled", TickProfiler.historySize);
+            for(int i = 0; i < TickProfiler.names.length; i++){
+                long total = profiler.total(i), count = profiler.count(i);
+                if(count == 0) continue;
+
+                info("  &lm@&fr: @ ms / @% / @ us avg / @, @, @ us p50, p95, p99 / @ us max", TickProfiler.names[i], Strings.fixed(total / 1e6f, 1), percent(total, tickTime),
+                    Strings.fixed(total / 1e3f / count, 1), micros(profiler.percentile(i, 0.5f)), micros(profiler.percentile(i, 0.95f)), micros(profiler.percentile(i, 0.99f)), micros(profiler.max(i)));
+            }
+        });
+
         handler.register("runwave", "Trigger the next wave.", arg -> {
             if(!state.is(State.playing)){
                 err("Not hosting. Host a game first.");
@@ -944,10 +1072,7 @@ public class ServerControl implements ApplicationListener{
 
             Fi file = saveDirectory.child(arg[0] + "." + saveExtension);
 
-            Core.app.post(() -> {
-                SaveIO.save(file);
-                info("Saved to @.", file);
-            });
+            Core.app.post(() -> SaveIO.saveAsync(file, () -> info("Saved to @.", file), e -> err("Failed to save to @: @", file, e)));
         });
 
         handler.register("saves", "List all saves in the save directory.", arg -> {
@@ -1135,6 +1260,120 @@ public class ServerControl implements ApplicationListener{
         currentLogFile.writeString(text + "\n", true);
     }
 
+    private static String percent(long time, long total){
+        return Strings.fixed(total == 0 ? 0f : time * 100f / total, 1);
+    }
+
+    private static String micros(long nanos){
+        return Strings.fixed(nanos / 1e3f, 1);
+    }
+
+    /** @return the state of the server and its tick profile, in the Prometheus text format. Main thread only. */
+    public String metrics(){
+        StringBuilder out = new StringBuilder();
+
+        gauge(out, "mindustry_players", "Connected players.", Groups.player.size());
+        gauge(out, "mindustry_units", "Units in the world.", Groups.unit.size());
+        gauge(out, "mindustry_buildings", "Buildings in the world.", Groups.build.size());
+        gauge(out, "mindustry_bullets", "Bullets in the world.", Groups.bullet.size());
+        gauge(out, "mindustry_wave", "Current wave.", state.wave);
+        gauge(out, "mindustry_tick_profiler_enabled", "Whether the tick profiler is enabled.", profiler.enabled ? 1 : 0);
+
+        out.append("# HELP mindustry_tick_phase_seconds Time spent in each phase of the game tick. Quantiles cover the last ").append(TickProfiler.historySize).append(" spans.\n");
+        out.append("# TYPE mindustry_tick_phase_seconds summary\n");
+        for(int i = 0; i < TickProfiler.names.length; i++){
+            String label = "phase=\"" + TickProfiler.names[i] + "\"";
+            for(float quantile : new float[]{0.5f, 0.95f, 0.99f}){
+                out.append("mindustry_tick_phase_seconds{").append(label).append(",quantile=\"").append(quantile).append("\"} ").append(profiler.percentile(i, quantile) / 1e9).append('\n');
+            }
+            out.append("mindustry_tick_phase_seconds_sum{").append(label).append("} ").append(profiler.total(i) / 1e9).append('\n');
+            out.append("mindustry_tick_phase_seconds_count{").append(label).append("} ").append(profiler.count(i)).append('\n');
+        }
+
+        out.append("# HELP mindustry_block_update_seconds_total Time spent updating the buildings of each block.\n");
+        out.append("# TYPE mindustry_block_update_seconds_total counter\n");
+        for(Block block : content.blocks()){
+            if(profiler.blockCount(block) == 0) continue;
+            out.append("mindustry_block_update_seconds_total{block=\"").append(escapeLabel(block.name)).append("\"} ").append(profiler.blockTotal(block) / 1e9).append('\n');
+        }
+
+        out.append("# HELP mindustry_block_updates_total Building updates of each block.\n");
+        out.append("# TYPE mindustry_block_updates_total counter\n");
+        for(Block block : content.blocks()){
+            if(profiler.blockCount(block) == 0) continue;
+            out.append("mindustry_block_updates_total{block=\"").append(escapeLabel(block.name)).append("\"} ").append(profiler.blockCount(block)).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value){
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String escapeLabel(String value){
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /** Answers an HTTP request received on the command socket. Only {@code GET /metrics} is supported. */
+    private void serveMetrics(Socket client, BufferedReader in, String request) throws IOException{
+        //the headers are not needed
+        String header;
+        while((header = in.readLine()) != null && !header.isEmpty());
+
+        String[] parts = request.split(" ");
+        String status, body;
+
+        if(parts.length < 2 || !(parts[1].equals("/metrics") || parts[1].startsWith("/metrics?"))){
+            status = "404 Not Found";
+            body = "Not found. Metrics are served at /metrics.\n";
+        }else{
+            //game state can only be read on the main thread
+            String[] result = {null};
+            CountDownLatch latch = new CountDownLatch(1);
+            Core.app.post(() -> {
+                try{
+                    result[0] = metrics();
+                }finally{
+                    latch.countDown();
+                }
+            });
+
+            try{
+                latch.await(5, TimeUnit.SECONDS);
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+
+            status = result[0] == null ? "503 Service Unavailable" : "200 OK";
+            body = result[0] == null ? "The server did not respond in time.\n" : result[0];
+        }
+
+        byte[] bytes = body.getBytes(Strings.utf8);
+        OutputStream out = client.getOutputStream();
+        out.write(("HTTP/1.1 " + status + "\r\n" +
+            "Content-Type: text/plain; version=0.0.4; charset=utf-8\r\n" +
+            "Content-Length: " + bytes.length + "\r\n" +
+            "Connection: close\r\n\r\n").getBytes(Strings.utf8));
+        out.write(bytes);
+        out.flush();
+    }
+
+    /** Finishes the current recording, if there is one. */
+    public void stopRecording(){
+        ServerRecorder recorder = net.recorder;
+        if(recorder == null) return;
+
+        try{
+            recorder.close();
+            info("Recording stopped after @ ticks.", recorder.ticks());
+        }catch(IOException e){
+            err("Failed to finish recording.", e);
+        }
+    }
+
     public void toggleSocket(boolean on){
         if(on && socketThread == null){
             socketThread = new Thread(() -> {
@@ -1143,13 +1382,26 @@ public class ServerControl implements ApplicationListener{
                     serverSocket.bind(new InetSocketAddress(Config.socketInputAddress.string(), Config.socketInputPort.num()));
                     while(true){
                         Socket client = serverSocket.accept();
-                        info("&lkReceived command socket connection: &fi@", serverSocket.getLocalSocketAddress());
                         BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()));
+                        String line = in.readLine();
+
+                        //metrics scrapers speak HTTP; everything else is a command connection
+                        if(line != null && line.startsWith("GET ")){
+                            try{
+                                serveMetrics(client, in, line);
+                            }catch(IOException e){
+                                debug("Failed to serve metrics: @", e.getMessage());
+                            }
+                            client.close();
+                            continue;
+                        }
+
+                        info("&lkReceived command socket connection: &fi@", serverSocket.getLocalSocketAddress());
                         socketOutput = new PrintWriter(client.getOutputStream(), true);
-                        String line;
-                        while(client.isConnected() && (line = in.readLine()) != null){
+                        while(client.isConnected() && line != null){
                             String result = line;
                             Core.app.post(() -> handleCommandString(result));
+                            line = in.readLine();
                         }
                         info("&lkLost command socket connection: &fi@", serverSocket.getLocalSocketAddress());
                         socketOutput = null;
@@ -1,6 +1,8 @@
 import arc.*;
 import arc.backend.headless.*;
 import arc.files.*;
+import arc.func.*;
+import arc.math.*;
 import arc.math.geom.*;
 import arc.struct.*;
 import arc.util.*;
@@ -8,22 +10,31 @@ import arc.util.io.*;
 import arc.util.serialization.*;
 import arc.util.serialization.JsonValue.*;
 import mindustry.*;
+import mindustry.ai.*;
+import mindustry.ai.Pathfinder.*;
 import mindustry.content.*;
 import mindustry.core.*;
 import mindustry.core.GameState.*;
 import mindustry.ctype.*;
+import mindustry.entities.*;
+import mindustry.entities.bullet.*;
 import mindustry.entities.units.*;
 import mindustry.game.*;
 import mindustry.gen.*;
 import mindustry.io.*;
 import mindustry.io.SaveIO.*;
+import mindustry.io.versions.*;
+import mindustry.io.versions.Save8.*;
 import mindustry.maps.*;
 import mindustry.mod.*;
 import mindustry.mod.Mods.*;
 import mindustry.net.*;
+import mindustry.net.Administration.*;
+import mindustry.net.Net.*;
 import mindustry.net.Packets.*;
 import mindustry.type.*;
 import mindustry.world.*;
+import mindustry.world.blocks.defense.turrets.Turret.*;
 import mindustry.world.blocks.payloads.*;
 import mindustry.world.blocks.storage.*;
 import org.junit.jupiter.api.*;
@@ -32,6 +43,7 @@ import org.junit.jupiter.params.provider.*;
 
 import java.io.*;
 import java.nio.*;
+import java.util.zip.*;
 
 import static mindustry.Vars.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -371,6 +383,501 @@ public class ApplicationTests{
         assertTrue(state.teams.playerCores().size > 0);
     }
 
+    @Test
+    void chunkedSaveLoad(){
+        world.loadMap(testMap);
+        int width = world.width(), height = world.height();
+        short[] floors = new short[width * height], overlays = new short[width * height], blocks = new short[width * height];
+        int[] builds = new int[width * height];
+
+        for(int i = 0; i < width * height; i++){
+            Tile tile = world.tiles.geti(i);
+            floors[i] = tile.floorID();
+            overlays[i] = tile.overlayID();
+            blocks[i] = tile.blockID();
+            builds[i] = tile.build == null ? -1 : tile.build.tile.pos();
+        }
+
+        SaveIO.writeChunked = true;
+        try{
+            SaveIO.save(saveDirectory.child("chunked.msav"));
+        }finally{
+            SaveIO.writeChunked = false;
+        }
+
+        resetWorld();
+        SaveIO.load(saveDirectory.child("chunked.msav"));
+
+        assertEquals(width, world.width());
+        assertEquals(height, world.height());
+
+        for(int i = 0; i < width * height; i++){
+            Tile tile = world.tiles.geti(i);
+            assertEquals(floors[i], tile.floorID(), "floor at " + tile);
+            assertEquals(overlays[i], tile.overlayID(), "overlay at " + tile);
+            assertEquals(blocks[i], tile.blockID(), "block at " + tile);
+            assertEquals(builds[i], tile.build == null ? -1 : tile.build.tile.pos(), "building at " + tile);
+        }
+
+        assertTrue(state.teams.playerCores().size > 0);
+    }
+
+    @Test
+    void chunkedSaveReadsRegion() throws IOException{
+        world.loadMap(testMap);
+        world.tile(world.width() - 4, world.height() - 4).setBlock(Blocks.thoriumWallLarge, Team.crux);
+
+        Fi file = saveDirectory.child("region.msav");
+        SaveIO.writeChunked = true;
+        try{
+            SaveIO.save(file);
+        }finally{
+            SaveIO.writeChunked = false;
+        }
+
+        //region saves are not compressed as a whole
+        byte[] header = new byte[SaveIO.header.length];
+        try(DataInputStream in = new DataInputStream(file.read())){
+            in.readFully(header);
+        }
+        assertArrayEquals(SaveIO.header, header);
+
+        int width = world.width(), height = world.height();
+        int rx = Save8.regions(width) - 1, ry = Save8.regions(height) - 1;
+        int x0 = rx * Save8.regionSize, y0 = ry * Save8.regionSize;
+        int rwidth = width - x0, rheight = height - y0;
+        short[] floors = new short[rwidth * rheight], overlays = new short[rwidth * rheight], blocks = new short[rwidth * rheight], teams = new short[rwidth * rheight];
+        for(int i = 0; i < floors.length; i++){
+            Tile tile = world.rawTile(x0 + i % rwidth, y0 + i / rwidth);
+            floors[i] = tile.floorID();
+            overlays[i] = tile.overlayID();
+            blocks[i] = tile.blockID();
+            teams[i] = tile.build != null && tile.isCenter() ? (short)tile.team().id : -1;
+        }
+
+        resetWorld();
+        world.resize(8, 8);
+
+        MapRegion region = SaveIO.chunkedVersion.readRegion(file, rx, ry);
+
+        //nothing was loaded
+        assertEquals(8, world.width());
+        assertEquals(x0, region.x);
+        assertEquals(y0, region.y);
+        assertEquals(rwidth, region.width);
+        assertEquals(rheight, region.height);
+        assertArrayEquals(floors, region.floors);
+        assertArrayEquals(overlays, region.overlays);
+        assertArrayEquals(blocks, region.blocks);
+        assertArrayEquals(teams, region.teams);
+    }
+
+    @Test
+    void tileIdsTrackChanges(){
+        world.loadMap(testMap);
+        short[] floors = world.tiles.floorIds(), overlays = world.tiles.overlayIds(), blocks = world.tiles.blockIds();
+
+        world.tile(10, 10).setBlock(Blocks.thoriumWallLarge, Team.sharded);
+        world.tile(20, 20).setFloor(Blocks.darksand.asFloor());
+        world.tile(21, 20).setOverlay(Blocks.oreCopper);
+        world.tile(10, 10).remove();
+        world.tile(30, 30).setBlock(Blocks.mender, Team.sharded);
+
+        for(int i = 0; i < world.tiles.width * world.tiles.height; i++){
+            Tile tile = world.tiles.geti(i);
+            assertEquals(tile.floorID(), floors[i], "floor at " + tile);
+            assertEquals(tile.overlayID(), overlays[i], "overlay at " + tile);
+            assertEquals(tile.blockID(), blocks[i], "block at " + tile);
+        }
+    }
+
+    @Test
+    void flowFieldRepairMatchesRecalculation(){
+        world.loadMap(testMap);
+        pathfinder.stop();
+
+        Team team = state.rules.waveTeam;
+        Flowfield field = pathfinder.calculateField(team, Pathfinder.costGround, Pathfinder.fieldCore);
+
+        //an empty 2x2 area that is on some path to the core
+        Tile target = null;
+        for(Tile tile : world.tiles){
+            Tile corner = world.tile(tile.x + 1, tile.y + 1);
+            if(field.weights[tile.array()] > 20 && tile.block() == Blocks.air && corner != null && corner.block() == Blocks.air &&
+                world.tile(tile.x + 1, tile.y).block() == Blocks.air && world.tile(tile.x, tile.y + 1).block() == Blocks.air){
+                target = tile;
+                break;
+            }
+        }
+        assertNotNull(target, "No reachable empty area");
+
+        //impassable, then passable at a cost, then cleared again
+        target.setBlock(Blocks.thoriumWallLarge, Team.derelict);
+        assertRepairMatches(field, team, target);
+
+        target.remove();
+        assertRepairMatches(field, team, target);
+
+        target.setBlock(Blocks.copperWall, state.rules.defaultTeam);
+        assertRepairMatches(field, team, target);
+
+        target.remove();
+        assertRepairMatches(field, team, target);
+    }
+
+    void assertRepairMatches(Flowfield field, Team team, Tile tile){
+        assertTrue(pathfinder.repairCalculatedField(field, tile), "Field must be repaired locally");
+        int[] expected = pathfinder.calculateField(team, Pathfinder.costGround, Pathfinder.fieldCore).weights;
+
+        for(int i = 0; i < expected.length; i++){
+            assertEquals(expected[i], field.weights[i], "weight at " + world.tiles.geti(i));
+        }
+    }
+
+    @Test
+    void unitIndexTracksUnits(){
+        world.loadMap(testMap);
+
+        Unit unit = UnitTypes.dagger.spawn(Team.sharded, 20f, 30f);
+        assertTrue(Team.sharded.data().unitIndex().any(18f, 28f, 4f, 4f), "Units must be indexed when added");
+
+        unit.set(world.unitWidth() - 20f, world.unitHeight() - 30f);
+        state.teams.updateTeamStats();
+        assertFalse(Team.sharded.data().unitIndex().any(18f, 28f, 4f, 4f), "Units must leave their old cell");
+        assertTrue(Units.nearEnemy(Team.crux, unit.x - 2f, unit.y - 2f, 4f, 4f), "Units must be found in their new cell");
+
+        unit.team = Team.crux;
+        state.teams.updateTeamStats();
+        assertFalse(Team.sharded.data().unitIndex().contains(unit));
+        assertTrue(Team.crux.data().unitIndex().contains(unit));
+
+        unit.remove();
+        assertEquals(0, Team.crux.data().unitIndex().size(), "Units must be removed from the index with their group");
+    }
+
+    @Test
+    void unitIndexDamageKillsCluster(){
+        world.loadMap(testMap);
+
+        Seq<Unit> units = new Seq<>();
+        for(int i = 0; i < 10; i++){
+            units.add(UnitTypes.dagger.spawn(Team.crux, 40f + i % 3, 40f + i / 3));
+        }
+
+        //killing units removes them from their cell while the query is running
+        Damage.damage(Team.sharded, 40f, 40f, tilesize * 4f, 100000f);
+
+        for(Unit unit : units){
+            assertTrue(unit.dead, "All units in range must be killed");
+            assertFalse(unit.isAdded(), "Killed units must be removed");
+        }
+        assertEquals(0, Team.crux.data().unitIndex().size());
+    }
+
+    @Test
+    void tickProfiler(){
+        TickProfiler profiler = new TickProfiler();
+        assertEquals(0L, profiler.begin());
+
+        profiler.enabled = true;
+        for(int i = 1; i <= 100; i++){
+            long start = profiler.begin();
+            profiler.end(TickProfiler.waves, start - i * 1000L);
+        }
+
+        assertEquals(100, profiler.count(TickProfiler.waves));
+        assertTrue(profiler.max(TickProfiler.waves) >= 100_000L);
+        assertTrue(profiler.percentile(TickProfiler.waves, 0.5f) >= 50_000L);
+        assertTrue(profiler.percentile(TickProfiler.waves, 0.5f) <= profiler.percentile(TickProfiler.waves, 0.99f));
+
+        profiler.block(Blocks.conveyor, 500L);
+        profiler.block(Blocks.conveyor, 700L);
+        assertEquals(2, profiler.blockCount(Blocks.conveyor));
+        assertEquals(1200L, profiler.blockTotal(Blocks.conveyor));
+        assertEquals(0, profiler.blockCount(Blocks.router));
+
+        profiler.reset();
+        assertEquals(0, profiler.count(TickProfiler.waves));
+        assertEquals(0L, profiler.percentile(TickProfiler.waves, 0.5f));
+        assertEquals(0, profiler.blockCount(Blocks.conveyor));
+    }
+
+    @Test
+    void serverRecording() throws IOException{
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Fi file = testDataFolder.child("recording.mrec");
+        net.recorder = new ServerRecorder(file);
+        for(int i = 0; i < 3; i++){
+            logic.update();
+        }
+        net.recorder.close();
+        assertNull(net.recorder);
+
+        byte[] save;
+        try(DataInputStream in = new DataInputStream(new InflaterInputStream(file.read()))){
+            byte[] header = new byte[ServerRecorder.header.length];
+            in.readFully(header);
+            assertArrayEquals(ServerRecorder.header, header);
+            assertEquals(ServerRecorder.version, in.readInt());
+
+            //random seeds
+            in.skipBytes(8 * 4);
+            save = new byte[in.readInt()];
+            in.readFully(save);
+
+            for(int i = 0; i < 3; i++){
+                assertEquals(ServerRecorder.entryTick, in.read());
+                assertEquals(Time.delta, in.readFloat());
+            }
+            assertEquals(-1, in.read());
+        }
+
+        resetWorld();
+        SaveIO.load(new InflaterInputStream(new ByteArrayInputStream(save)), world.context);
+        assertEquals(testMap.width, world.width());
+        assertTrue(state.teams.playerCores().size > 0);
+    }
+
+    @Test
+    void hiddenUnitsResyncWhenVisible() throws IOException{
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Net previous = net;
+        net = new Net(new NetProvider(){
+            @Override
+            public void connectClient(String ip, int port, Runnable success){}
+
+            @Override
+            public void sendClient(Object object, boolean reliable){}
+
+            @Override
+            public void disconnectClient(){}
+
+            @Override
+            public void discoverServers(Cons<Host> callback, Runnable done){}
+
+            @Override
+            public void pingHost(String address, int port, Cons<Host> valid, Cons<Exception> failed){}
+
+            @Override
+            public void hostServer(int port){}
+
+            @Override
+            public Iterable<? extends NetConnection> getConnections(){
+                return new Seq<>();
+            }
+
+            @Override
+            public void closeServer(){}
+        });
+
+        //every unit is selected
+        Config.snapshotInterest.set(false);
+
+        try{
+            net.host(0);
+
+            Seq<Object> sent = new Seq<>();
+            Player player = Player.create();
+            player.team(Team.sharded);
+            player.con = new NetConnection("127.0.0.1"){
+                @Override
+                public void send(Object object, boolean reliable){
+                    sent.add(object);
+                }
+
+                @Override
+                public void close(){
+                }
+            };
+            player.add();
+
+            Unit unit = UnitTypes.dagger.spawn(state.rules.waveTeam, 100f, 100f);
+
+            //unchanged state is sent twice, then left out
+            for(int i = 0; i < 3; i++){
+                netServer.writeEntitySnapshot(player);
+            }
+            sent.clear();
+            netServer.writeEntitySnapshot(player);
+            assertFalse(sent.contains(p -> p instanceof EntitySnapshotCallPacket), "Unchanged entities must not be sent");
+
+            //clients remove units that are hidden by fog
+            state.rules.fog = true;
+            netServer.writeEntitySnapshot(player);
+            assertTrue(sent.contains(p -> p instanceof HiddenSnapshotCallPacket), "The unit must be hidden");
+
+            //visible again with the same state
+            state.rules.fog = false;
+            sent.clear();
+            netServer.writeEntitySnapshot(player);
+
+            EntitySnapshotCallPacket packet = (EntitySnapshotCallPacket)sent.find(p -> p instanceof EntitySnapshotCallPacket);
+            assertNotNull(packet, "A unit that becomes visible must be sent again");
+            assertEquals(1, packet.amount);
+            assertEquals(unit.id, ByteBuffer.wrap(packet.data).getInt());
+        }finally{
+            net.closeServer();
+            net = previous;
+            Config.snapshotInterest.set(true);
+        }
+    }
+
+    @Test
+    void batchedBulletCollisionsMatch(){
+        assertArrayEquals(bulletHits(false), bulletHits(true));
+    }
+
+    /** @return health of every unit and the amount of remaining bullets, after colliding bullets of two teams once */
+    float[] bulletHits(boolean batch){
+        world.loadMap(testMap);
+        state.set(State.playing);
+        collisions.batchBullets = batch;
+
+        try{
+            Seq<Unit> units = new Seq<>();
+            for(int i = 0; i < 24; i++){
+                units.add(UnitTypes.dagger.spawn(i % 3 == 0 ? Team.blue : Team.crux, (12 + (i % 6) * 4) * tilesize, (12 + (i / 6) * 4) * tilesize));
+            }
+
+            //bullets on, near and away from every unit, so that each one can only hit a single unit
+            BulletType type = UnitTypes.dagger.weapons.first().bullet;
+            float[] offsets = {0f, -3f, 3f, 12f};
+            for(int i = 0; i < units.size; i++){
+                Unit unit = units.get(i);
+                for(int j = 0; j < offsets.length; j++){
+                    type.create(null, j % 2 == 0 ? Team.sharded : Team.blue, unit.x + offsets[j], unit.y - offsets[j], 0f);
+                }
+            }
+
+            state.teams.updateTeamStats();
+            Groups.bullet.collide();
+
+            float[] result = new float[units.size + 1];
+            for(int i = 0; i < units.size; i++){
+                result[i] = units.get(i).health;
+            }
+            result[units.size] = Groups.bullet.size();
+            return result;
+        }finally{
+            collisions.batchBullets = true;
+        }
+    }
+
+    @Test
+    void cachedTurretTargetsMatch(){
+        world.loadMap(testMap);
+        state.set(State.playing);
+
+        Seq<TurretBuild> turrets = new Seq<>();
+        for(int x = 0; x < 5; x++){
+            for(int y = 0; y < 5; y++){
+                Tile tile = world.tile(10 + x * 5, 10 + y * 5);
+                tile.setBlock((x + y) % 2 == 0 ? Blocks.duo : Blocks.hail, Team.sharded, 0);
+                for(int i = 0; i < 10; i++){
+                    tile.build.handleItem(null, Items.graphite);
+                }
+                turrets.add((TurretBuild)tile.build);
+            }
+        }
+
+        //ground and air units, and buildings, spread unevenly around the turrets
+        for(int i = 0; i < 30; i++){
+            (i % 3 == 0 ? UnitTypes.flare : UnitTypes.dagger).spawn(Team.crux, (6 + (i * 7) % 32) * tilesize + i % 5, (6 + (i * 11) % 32) * tilesize + i % 7);
+        }
+        for(int i = 0; i < 8; i++){
+            world.tile(12 + i * 5, 38).setBlock(Blocks.copperWall, Team.crux, 0);
+        }
+        state.teams.updateTeamStats();
+
+        Posc[] direct = turretTargets(turrets, false), cached = turretTargets(turrets, true);
+
+        assertTrue(Structs.contains(direct, t -> t != null), "Turrets must find targets");
+        assertArrayEquals(direct, cached);
+    }
+
+    /** @return the target every turret picks on a single update */
+    Posc[] turretTargets(Seq<TurretBuild> turrets, boolean cache){
+        TargetCache.enabled = cache;
+        try{
+            //let every turret look for a target on this update
+            Time.time += 1000f;
+            state.updateId ++;
+
+            Posc[] targets = new Posc[turrets.size];
+            for(int i = 0; i < turrets.size; i++){
+                turrets.get(i).updateTile();
+                targets[i] = turrets.get(i).target;
+            }
+            return targets;
+        }finally{
+            TargetCache.enabled = true;
+        }
+    }
+
+    @Test
+    void incrementalFogMatchesRedraw() throws InterruptedException{
+        Seq<boolean[]> redrawn = fogSteps(false), incremental = fogSteps(true);
+
+        assertEquals(redrawn.size, incremental.size);
+        for(int i = 0; i < redrawn.size; i++){
+            assertArrayEquals(redrawn.get(i), incremental.get(i), "fog at step " + i);
+        }
+    }
+
+    /** @return dynamic fog visibility of two teams after each step of moving, adding and removing units */
+    Seq<boolean[]> fogSteps(boolean incremental) throws InterruptedException{
+        world.loadMap(testMap);
+        state.rules.fog = true;
+        state.rules.pvp = true;
+        fogControl.incremental = incremental;
+        fogControl.threaded = false;
+
+        Team[] teams = {Team.sharded, Team.blue};
+        int width = world.width(), height = world.height();
+        Seq<Unit> units = new Seq<>();
+        Seq<boolean[]> results = new Seq<>();
+
+        try{
+            for(int i = 0; i < 12; i++){
+                units.add(UnitTypes.dagger.spawn(teams[i % 2], 0f, 0f));
+            }
+
+            for(int step = 0; step < 6; step++){
+                if(step == 2) units.pop().remove();
+                if(step == 3) units.add(UnitTypes.dagger.spawn(Team.blue, 0f, 0f));
+
+                for(int i = 0; i < units.size; i++){
+                    int x = Mathf.clamp(10 + i * 3 + (i % 3 - 1) * step * 2, 0, width - 1), y = Mathf.clamp(10 + i * 2 + step, 0, height - 1);
+                    units.get(i).set(x * tilesize, y * tilesize);
+                }
+
+                //dynamic fog is only flushed every few frames
+                Thread.sleep(50);
+                state.teams.updateTeamStats();
+                fogControl.update();
+
+                boolean[] visible = new boolean[width * height * teams.length];
+                for(int t = 0; t < teams.length; t++){
+                    for(int i = 0; i < width * height; i++){
+                        visible[t * width * height + i] = fogControl.isVisibleTile(teams[t], i % width, i / width);
+                    }
+                }
+                results.add(visible);
+            }
+        }finally{
+            state.rules.fog = false;
+            state.rules.pvp = false;
+            fogControl.incremental = true;
+            fogControl.threaded = true;
+        }
+
+        return results;
+    }
+
     void updateBlocks(int times){
         for(Tile tile : world.tiles){
             if(tile.build != null && tile.isCenter()){
@@ -0,0 +1,70 @@
+import mindustry.logic.*;
+import mindustry.logic.LExecutor.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.*;
+import org.junit.jupiter.params.provider.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that programs rewritten by LCompiler behave exactly like the plain interpreter. */
+public class LogicTests{
+
+    @BeforeAll
+    static void launchApplication(){
+        ApplicationTests.launchApplication(false);
+    }
+
+    @AfterEach
+    void resetCompile(){
+        LExecutor.compile = true;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+    //counting loop
+    "set i 0\nop add i i 1\njump 1 lessThan i 100\nset done 1",
+    //every numeric operation, including ones that produce NaN and infinity
+    "set a 7\nset b 0\nop add r0 a b\nop sub r1 a b\nop mul r2 a 3\nop div r3 a b\nop idiv r4 a 2\nop mod r5 a 3\nop pow r6 a 2\n" +
+    "op div r7 b b\nop lessThan r8 a b\nop greaterThanEq r9 a b\nop shl r10 a 2\nop xor r11 a 5\nop flip r12 a 0\nop max r13 a b\n" +
+    "op sqrt r14 a 0\nop log r15 b 0\nop sin r16 a 0\nop angle r17 a 3\nop land r18 a b\nop notEqual r19 a b",
+    //comparisons between objects, null and numbers
+    "set a null\nset b @copper\nop equal r0 a b\nop equal r1 a null\nop strictEqual r2 a null\nop strictEqual r3 b @copper\n" +
+    "op notEqual r4 b @lead\nop add r5 b 1\nop strictEqual r6 0 null\nop equal r7 0 null\nset c b\nset d @counter",
+    //every jump condition
+    "set x 0\njump 3 equal x null\nset x 5\njump 5 strictEqual x 5\nset y 1\njump 7 notEqual @copper @lead\nset y 2\n" +
+    "jump 9 greaterThan x 2\nset y 3\njump 11 lessThanEq x 5\nset y 4\njump 13 greaterThanEq x 6\nset z 1\njump 15 always\nset z 2\n" +
+    "op add x x 1\njump 0 lessThan x 20",
+    //writes to constants and the counter
+    "set @unit 5\nop add @copper 1 2\nset n @unit\nop add @counter @counter 1\nset skipped 1\nset reached 1\nend\nset never 1",
+    //nested loops that finish with an early end
+    "set i 0\nset j 0\nop add j j 1\nop mul p i j\nop add sum sum p\njump 2 lessThan j 4\nop add i i 1\njump 1 lessThan i 4\nend"
+    })
+    void compiledMatchesInterpreter(String code){
+        LExecutor plain = executor(code, false), compiled = executor(code, true);
+
+        for(int step = 0; step < 500; step++){
+            plain.runOnce();
+            compiled.runOnce();
+
+            assertEquals(plain.vars.length, compiled.vars.length);
+            for(int i = 0; i < plain.vars.length; i++){
+                Var a = plain.vars[i], b = compiled.vars[i];
+                String where = "'" + a.name + "' at step " + step;
+
+                assertEquals(a.isobj, b.isobj, where);
+                if(a.isobj){
+                    assertSame(a.objval, b.objval, where);
+                }else{
+                    assertEquals(Double.doubleToLongBits(a.numval), Double.doubleToLongBits(b.numval), where);
+                }
+            }
+        }
+    }
+
+    static LExecutor executor(String code, boolean compile){
+        LExecutor.compile = compile;
+        LExecutor exec = new LExecutor();
+        exec.load(LAssembler.assemble(code, true));
+        return exec;
+    }
+}
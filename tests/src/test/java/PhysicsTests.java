@@ -0,0 +1,93 @@
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+import mindustry.async.PhysicsProcess.*;
+import mindustry.async.PhysicsProcess.PhysicsWorld.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Checks that the spatial hash broadphase produces the same results as the quadtree one. */
+public class PhysicsTests{
+    static final Rect bounds = new Rect(-64f, -64f, 2048f, 2048f);
+
+    @Test
+    void gridMatchesQuadtreePairs(){
+        //pairs of overlapping bodies far enough apart that each body has exactly one contact
+        Seq<PhysicsBody> quad = new Seq<>(), grid = new Seq<>();
+        Rand rand = new Rand(1);
+
+        for(int i = 0; i < 50; i++){
+            float x = 40f + (i % 10) * 150f, y = 40f + (i / 10) * 150f;
+            float radius = rand.random(2f, 20f), mass = rand.random(1f, 100f);
+            float ox = rand.range(radius), oy = rand.range(radius);
+            int layer = rand.random(2);
+
+            quad.add(body(x, y, radius, mass, layer), body(x + ox, y + oy, radius * 0.75f, mass * 2f, layer));
+            grid.add(body(x, y, radius, mass, layer), body(x + ox, y + oy, radius * 0.75f, mass * 2f, layer));
+        }
+
+        simulate(quad, false);
+        simulate(grid, true);
+
+        for(int i = 0; i < quad.size; i++){
+            assertEquals(quad.get(i).x, grid.get(i).x, 0.001f, "x of body " + i);
+            assertEquals(quad.get(i).y, grid.get(i).y, 0.001f, "y of body " + i);
+        }
+    }
+
+    @Test
+    void gridSeparatesDenseBlob(){
+        Seq<PhysicsBody> quad = new Seq<>(), grid = new Seq<>();
+        Rand rand = new Rand(2);
+
+        for(int i = 0; i < 1000; i++){
+            float x = 500f + rand.range(60f), y = 500f + rand.range(60f), radius = rand.random(4f, 12f);
+            quad.add(body(x, y, radius, radius * radius, 0));
+            grid.add(body(x, y, radius, radius * radius, 0));
+        }
+
+        float initial = overlap(quad);
+
+        for(int i = 0; i < 10; i++){
+            simulate(quad, false);
+            simulate(grid, true);
+        }
+
+        float quadOverlap = overlap(quad), gridOverlap = overlap(grid);
+
+        assertTrue(quadOverlap < initial);
+        assertTrue(gridOverlap < initial);
+        //contact order differs between broadphases, so results are only comparable in aggregate
+        assertTrue(gridOverlap <= quadOverlap * 1.25f + 1f, "grid overlap " + gridOverlap + " vs quadtree overlap " + quadOverlap);
+    }
+
+    static void simulate(Seq<PhysicsBody> bodies, boolean useGrid){
+        PhysicsWorld world = new PhysicsWorld(bounds);
+        world.useGrid = useGrid;
+        bodies.each(world::add);
+        world.update();
+    }
+
+    static float overlap(Seq<PhysicsBody> bodies){
+        float total = 0f;
+        for(int i = 0; i < bodies.size; i++){
+            for(int j = i + 1; j < bodies.size; j++){
+                PhysicsBody a = bodies.get(i), b = bodies.get(j);
+                if(a.layer != b.layer) continue;
+                total += Math.max(a.radius + b.radius - Mathf.dst(a.x, a.y, b.x, b.y), 0f);
+            }
+        }
+        return total;
+    }
+
+    static PhysicsBody body(float x, float y, float radius, float mass, int layer){
+        PhysicsBody body = new PhysicsBody();
+        body.x = x;
+        body.y = y;
+        body.radius = radius;
+        body.mass = mass;
+        body.layer = layer;
+        return body;
+    }
+}